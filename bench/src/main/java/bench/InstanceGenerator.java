@@ -0,0 +1,137 @@
+/**
+ * 
+ */
+package bench;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Random;
+import model.SCPModel;
+import util.ElementSet;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Seeded generator of random weighted set cover instances.  Every set draws about density*n
+ * random elements out of 1..n; any element no set drew is then added to a random set, so the
+ * instance can always be fully covered.  The same arguments always give the same instance.
+ * Sets are built straight into primitive arrays, so millions of elements are fine.
+ *
+ * Usage: java bench.InstanceGenerator n m density UNIFORM|UNIT|PROPORTIONAL|PARETO seed out.txt
+ * writes the instance in the files/SCP_S_*.txt layout.
+ *
+ */
+
+public class InstanceGenerator {
+	
+	public enum CostDistribution {
+		UNIFORM,        // uniform in [1, 100)
+		UNIT,           // every set costs 1 (pure cardinality cover)
+		PROPORTIONAL,   // |set| * uniform [0.5, 1.5): bigger sets cost more
+		PARETO          // heavy tail (shape 1.5, minimum 1)
+	}
+	
+	public static SCPModel generate(int n, int m, double density, CostDistribution costs, long seed) {
+		Random rnd = new Random(seed);
+		double mean = Math.max(1, density * n);
+		double sd = Math.sqrt(mean * Math.max(0, 1 - density));
+		
+		int[] offsets = new int[m + 1];
+		int[] elements = new int[(int)Math.min(Integer.MAX_VALUE - 8, (long)Math.ceil(mean * m * 1.1) + 16)];
+		boolean[] drawn = new boolean[n + 1];
+		
+		for (int s = 0; s < m; s++) {
+			int size = (int)Math.max(1, Math.min(n, Math.round(mean + sd * rnd.nextGaussian())));
+			if (offsets[s] + size > elements.length) {
+				elements = Arrays.copyOf(elements, (int)Math.min(Integer.MAX_VALUE - 8, (long)elements.length * 3 / 2 + size));
+			}
+			for (int i = 0; i < size; i++) {
+				int e = 1 + rnd.nextInt(n); //repeats are dropped by the model
+				elements[offsets[s] + i] = e;
+				drawn[e] = true;
+			}
+			offsets[s + 1] = offsets[s] + size;
+		}
+		
+		//elements nobody drew go to a random set: (set << 32 | element), sorted by set
+		int missing = 0;
+		for (int e = 1; e <= n; e++) {
+			if (!drawn[e]) {
+				missing++;
+			}
+		}
+		long[] extra = new long[missing];
+		int x = 0;
+		for (int e = 1; e <= n; e++) {
+			if (!drawn[e]) {
+				extra[x++] = ((long)rnd.nextInt(m) << 32) | e;
+			}
+		}
+		Arrays.sort(extra);
+		
+		SCPModel model = new SCPModel();
+		int[] buf = new int[16];
+		x = 0;
+		for (int s = 0; s < m; s++) {
+			int size = offsets[s + 1] - offsets[s];
+			int len = size;
+			while (x + len - size < extra.length && (int)(extra[x + len - size] >>> 32) == s) {
+				len++;
+			}
+			if (buf.length < len) {
+				buf = new int[Math.max(len, buf.length * 2)];
+			}
+			System.arraycopy(elements, offsets[s], buf, 0, size);
+			for (int i = size; i < len; i++) {
+				buf[i] = (int)extra[x++];
+			}
+			model.addSetToCover(s + 1, cost(costs, len, rnd), buf, 0, len);
+		}
+		
+		return model;
+	}
+	
+	private static double cost(CostDistribution costs, int size, Random rnd) {
+		switch (costs) {
+		case UNIT:
+			return 1;
+		case PROPORTIONAL:
+			return size * (0.5 + rnd.nextDouble());
+		case PARETO:
+			return Math.pow(1 - rnd.nextDouble(), -1 / 1.5);
+		default:
+			return 1 + 99 * rnd.nextDouble();
+		}
+	}
+	
+	/**
+	 * Write a model in the files/SCP_S_*.txt layout (n, m, then cost / elements / 0 per set).
+	 */
+	
+	public static void writeSCP(SCPModel model, File file) throws IOException {
+		try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file), 1 << 16))) {
+			out.println(model.getNumE());
+			out.println(model.getNumS());
+			for (ElementSet es : model.getSCP()) {
+				out.println(es.getCost());
+				for (Integer e : es.getESet()) {
+					out.println(e);
+				}
+				out.println(0);
+			}
+		}
+	}
+	
+	public static void main(String[] args) throws IOException {
+		if (args.length != 6) {
+			System.err.println("usage: InstanceGenerator n m density UNIFORM|UNIT|PROPORTIONAL|PARETO seed out.txt");
+			System.exit(1);
+		}
+		SCPModel model = generate(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Double.parseDouble(args[2]),
+				CostDistribution.valueOf(args[3]), Long.parseLong(args[4]));
+		writeSCP(model, new File(args[5]));
+	}
+}
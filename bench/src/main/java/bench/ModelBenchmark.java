@@ -0,0 +1,86 @@
+/**
+ * 
+ */
+package bench;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import io.ModelSnapshot;
+import io.SCPLoader;
+import model.SCPModel;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Model-side costs: loading a generated instance from the text format and from a binary
+ * snapshot, and SCPModel.getNumE() (called several times by every solve()).
+ *
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelBenchmark {
+	
+	@Param({"100000"})
+	public int n;
+	
+	@Param({"20000"})
+	public int m;
+	
+	@Param({"0.0005"})
+	public double density;
+	
+	@Param({"42"})
+	public long seed;
+	
+	private SCPModel _model;
+	private File _text;
+	private File _snapshot;
+	
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		_model = InstanceGenerator.generate(n, m, density, InstanceGenerator.CostDistribution.UNIFORM, seed);
+		_text = File.createTempFile("scp-bench", ".txt");
+		_snapshot = File.createTempFile("scp-bench", ".scpb");
+		InstanceGenerator.writeSCP(_model, _text);
+		ModelSnapshot.write(_model, _snapshot);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		_text.delete();
+		_snapshot.delete();
+	}
+	
+	@Benchmark
+	public SCPModel loadText() throws IOException {
+		return new SCPLoader().loadSCP(_text);
+	}
+	
+	@Benchmark
+	public SCPModel loadSnapshot() throws IOException {
+		return ModelSnapshot.read(_snapshot);
+	}
+	
+	@Benchmark
+	public int getNumE() {
+		return _model.getNumE();
+	}
+}
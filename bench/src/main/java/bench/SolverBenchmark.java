@@ -0,0 +1,112 @@
+/**
+ * 
+ */
+package bench;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import model.SCPModel;
+import solver.ChvatalSolver;
+import solver.GreedyCostSolver;
+import solver.GreedyCoverageSolver;
+import solver.GreedySolver;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * One full solve() of each heuristic on a generated instance.  "mode" picks the original scan
+ * (SCAN), the indexed engine of the heuristic (FAST: BUCKET / CURSOR / LAZY) or the fork-join
+ * scan (PARALLEL).  Selection printing is sent to a null stream so it does not dominate.
+ *
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class SolverBenchmark {
+	
+	@Param({"2000"})
+	public int n;
+	
+	@Param({"1000"})
+	public int m;
+	
+	@Param({"0.01"})
+	public double density;
+	
+	@Param({"UNIFORM"})
+	public InstanceGenerator.CostDistribution costs;
+	
+	@Param({"Coverage", "Cost", "Chvatal"})
+	public String solver;
+	
+	@Param({"SCAN", "FAST", "PARALLEL"})
+	public String mode;
+	
+	@Param({"1.0"})
+	public double alpha;
+	
+	@Param({"42"})
+	public long seed;
+	
+	private GreedySolver _solver;
+	private PrintStream _stdout;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		SCPModel model = InstanceGenerator.generate(n, m, density, costs, seed);
+		_solver = create(solver, mode);
+		_solver.setModel(model);
+		_solver.setMinCoverage(alpha);
+		
+		_stdout = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		System.setOut(_stdout);
+	}
+	
+	@Benchmark
+	public double solve() {
+		_solver.solve();
+		return _solver.getObjFn();
+	}
+	
+	static GreedySolver create(String solver, String mode) {
+		boolean fast = mode.equals("FAST");
+		GreedySolver s;
+		switch (solver) {
+		case "Coverage":
+			s = new GreedyCoverageSolver(fast ? GreedyCoverageSolver.Mode.BUCKET : GreedyCoverageSolver.Mode.SCAN);
+			break;
+		case "Cost":
+			s = new GreedyCostSolver(fast ? GreedyCostSolver.Mode.CURSOR : GreedyCostSolver.Mode.SCAN);
+			break;
+		case "Chvatal":
+			s = new ChvatalSolver(fast ? ChvatalSolver.Mode.LAZY : ChvatalSolver.Mode.SCAN);
+			break;
+		default:
+			throw new IllegalArgumentException("unknown solver " + solver);
+		}
+		s.setParallel(mode.equals("PARALLEL"));
+		return s;
+	}
+}
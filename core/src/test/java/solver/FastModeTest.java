@@ -0,0 +1,142 @@
+/**
+ *
+ */
+package solver;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import model.SCPModel;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * The fast modes of the greedy solvers promise to pick exactly the sets of the original scan
+ * (same sets, same order, same objective): LAZY for Chvatal, BUCKET for coverage, CURSOR for
+ * cost, SIMD for Chvatal and coverage, and the parallel scan (setParallel(true)) for all three.
+ * Each test runs both sides on seeded random models at several coverage levels.  The costs are
+ * small integers so that ties are common and the tie-break on set ID is exercised too.
+ *
+ */
+
+public class FastModeTest {
+
+	private static final int NUM_MODELS = 40;
+	private static final double[] ALPHAS = {0.3, 0.5, 0.8, 0.95, 1.0};
+
+	@Test
+	public void chvatalLazyMatchesScan() {
+		compare(() -> new ChvatalSolver(ChvatalSolver.Mode.SCAN), () -> new ChvatalSolver(ChvatalSolver.Mode.LAZY));
+	}
+
+	@Test
+	public void chvatalSimdMatchesScan() {
+		compare(() -> new ChvatalSolver(ChvatalSolver.Mode.SCAN), () -> new ChvatalSolver(ChvatalSolver.Mode.SIMD));
+	}
+
+	@Test
+	public void chvatalParallelMatchesScan() {
+		compare(() -> new ChvatalSolver(ChvatalSolver.Mode.SCAN), () -> parallel(new ChvatalSolver(ChvatalSolver.Mode.SCAN)));
+	}
+
+	@Test
+	public void coverageBucketMatchesScan() {
+		compare(() -> new GreedyCoverageSolver(GreedyCoverageSolver.Mode.SCAN), () -> new GreedyCoverageSolver(GreedyCoverageSolver.Mode.BUCKET));
+	}
+
+	@Test
+	public void coverageSimdMatchesScan() {
+		compare(() -> new GreedyCoverageSolver(GreedyCoverageSolver.Mode.SCAN), () -> new GreedyCoverageSolver(GreedyCoverageSolver.Mode.SIMD));
+	}
+
+	@Test
+	public void coverageParallelMatchesScan() {
+		compare(() -> new GreedyCoverageSolver(GreedyCoverageSolver.Mode.SCAN), () -> parallel(new GreedyCoverageSolver(GreedyCoverageSolver.Mode.SCAN)));
+	}
+
+	@Test
+	public void costCursorMatchesScan() {
+		compare(() -> new GreedyCostSolver(GreedyCostSolver.Mode.SCAN), () -> new GreedyCostSolver(GreedyCostSolver.Mode.CURSOR));
+	}
+
+	@Test
+	public void costParallelMatchesScan() {
+		compare(() -> new GreedyCostSolver(GreedyCostSolver.Mode.SCAN), () -> parallel(new GreedyCostSolver(GreedyCostSolver.Mode.SCAN)));
+	}
+
+	private static GreedySolver parallel(GreedySolver solver) {
+		solver.setParallel(true);
+		return solver;
+	}
+
+	/** Solve every random model at every alpha with a fresh solver from each side and check
+	 *  that the picks (in the order they were made) and the objective are the same.
+	 */
+
+	private static void compare(Supplier<GreedySolver> scan, Supplier<GreedySolver> fast) {
+		for (long seed = 1; seed <= NUM_MODELS; seed++) {
+			SCPModel model = randomModel(seed);
+			for (double alpha : ALPHAS) {
+				GreedySolver expected = run(scan.get(), model, alpha);
+				GreedySolver actual = run(fast.get(), model, alpha);
+				String where = actual.getName() + " on model " + seed + " at alpha " + alpha;
+
+				assertEquals(picks(expected), picks(actual), where);
+				assertEquals(expected.getObjFn(), actual.getObjFn(), 1e-9, where);
+				assertEquals(expected.getCoverage(), actual.getCoverage(), 1e-12, where);
+			}
+		}
+	}
+
+	private static GreedySolver run(GreedySolver solver, SCPModel model, double alpha) {
+		solver.setModel(model);
+		solver.setMinCoverage(alpha);
+		solver.solve();
+		return solver;
+	}
+
+	private static List<Integer> picks(GreedySolver solver) { //set IDs in pick order
+		List<Integer> ids = new ArrayList<>();
+		Trajectory trajectory = solver.getTrajectory();
+		for (int i = 0; i < trajectory.size(); i++) {
+			ids.add(trajectory.getSet(i).getSetID());
+		}
+		return ids;
+	}
+
+	/** Random model of 50..600 elements and 100..1200 sets (more than one chunk of the parallel
+	 *  scan), sparse or dense depending on the seed so that the SIMD rows end in partial words
+	 *  and partial vectors.  Set IDs are shuffled so that the ID order differs from insertion order.
+	 */
+
+	static SCPModel randomModel(long seed) {
+		Random rnd = new Random(seed);
+		int n = 50 + rnd.nextInt(551);
+		int m = 100 + rnd.nextInt(1101);
+		int maxSize = rnd.nextBoolean() ? 10 : Math.max(10, n / 4);
+		int maxCost = 1 + rnd.nextInt(20);
+
+		List<Integer> ids = new ArrayList<>();
+		for (int j = 1; j <= m; j++) {
+			ids.add(j);
+		}
+		Collections.shuffle(ids, rnd);
+
+		SCPModel model = new SCPModel();
+		for (int id : ids) {
+			int size = 1 + rnd.nextInt(maxSize);
+			List<Integer> elements = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				elements.add(1 + rnd.nextInt(n));
+			}
+			model.addSetToCover(id, 1 + rnd.nextInt(maxCost), elements);
+		}
+		return model;
+	}
+}
@@ -2,13 +2,16 @@ import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.util.Arrays;
 import java.util.List;
-import java.util.TreeSet;
 
+
+import io.SCPLoader;
 import model.SCPModel;
 import solver.ChvatalSolver;
 import solver.GreedyCostSolver;
 import solver.GreedyCoverageSolver;
 import solver.GreedySolver;
+import solver.PortfolioRunner;
+import solver.SetSampler;
 
 import java.io.*;
 
@@ -59,37 +62,15 @@ public class TestSCP {
 		ChvatalSolver ChvatalMethod = new ChvatalSolver();
 		
 		List<GreedySolver> solvers = Arrays.asList(new GreedySolver[] {CoverageMethod, CostMethod, ChvatalMethod});
+		for (GreedySolver s : solvers)
+			s.setVerbose(true); //print the progress of each solve (Running/Selected/Done), as TestSCPSoln does
 		
 		printComparison(solvers, model2, 0.5);
 		System.out.println("==========================================================================");
 	}
 		
-	public static SCPModel ReadModel (File file) throws IOException { //not perfect but shows that file can be read!
-		
-		BufferedReader fin = new BufferedReader (new FileReader(file));
-		fin.readLine();
-		
-		int setID = 1;
-		int setNum = Integer.parseInt(fin.readLine());
-		SCPModel read_model = new SCPModel();
-		
-		while (setID < setNum) {
-			double cost = Double.parseDouble(fin.readLine());
-			TreeSet<Integer> elements = new TreeSet <Integer>();
-			int check = Integer.MAX_VALUE;
-			
-			while (check != 0) {
-				check = Integer.parseInt(fin.readLine());
-				
-				if (check!=0) {
-					elements.add(check);
-				}
-			}
-			
-			read_model.addSetToCover(setID, cost, elements);
-			setID++;
-		}
-		return read_model;
+	public static SCPModel ReadModel (File file) throws IOException { //sets get IDs 1..m in file order (the last set is no longer dropped)
+		return new SCPLoader().loadSCP(file);
 	}
 	
 	
@@ -99,7 +80,39 @@ public class TestSCP {
 		// Show the model
 		System.out.println(model);
 		
-		// Run all solvers and record winners
+		// Run all solvers one after another
+		for (GreedySolver s : solvers) {
+			s.setMinCoverage(alpha);
+			s.setModel(model);
+			s.solve();
+			s.print();
+			s.printRowMetrics();
+		}
+		
+		printTable(solvers, alpha);
+	}
+	
+	// same comparison, but the solvers run concurrently (they must be distinct instances)
+	public static void printPortfolioComparison(List<GreedySolver> solvers, SCPModel model, double alpha) {
+		
+		// Show the model
+		System.out.println(model);
+		
+		try (PortfolioRunner runner = new PortfolioRunner()) {
+			runner.run(solvers, model, alpha);
+			for (GreedySolver s : solvers) {
+				s.print();
+				s.printRowMetrics();
+			}
+			printTable(solvers, alpha);
+			System.out.println("Wall-clock time for the portfolio: " + runner.getWallTime() + "ms\n");
+		}
+	}
+	
+	// comparison table and category winners of solvers that have been solved at level alpha
+	public static void printTable(List<GreedySolver> solvers, double alpha) {
+		
+		// Record winners
 		GreedySolver timeWinner = null;
 		long minTime = Long.MAX_VALUE;
 		
@@ -110,12 +123,6 @@ public class TestSCP {
 		double maxCov = -Double.MAX_VALUE;
 		
 		for (GreedySolver s : solvers) {
-			s.setMinCoverage(alpha);
-			s.setModel(model);
-			s.solve();
-			s.print();
-			s.printRowMetrics();
-			
 			if (minTime > s.getCompTime()) {
 				minTime = s.getCompTime();
 				timeWinner = s;
@@ -149,4 +156,61 @@ public class TestSCP {
 		System.out.println("Overall winner: " + overall + "\n");
 	}
 	
+	// objective and coverage of every solver for a list of coverage levels; each solver runs once,
+	// to full coverage, and every alpha is then read off its trajectory
+	public static void printSweep(List<GreedySolver> solvers, SCPModel model, double[] alphas) {
+		
+		for (GreedySolver s : solvers) {
+			s.setModel(model);
+			s.solveTrajectory();
+		}
+		
+		System.out.format("\n%-10s", "Alpha (%)");
+		for (GreedySolver s : solvers)
+			System.out.format("%30s", s.getName());
+		System.out.println();
+		System.out.println("----------" + "------------------------------".repeat(solvers.size()));
+		for (double alpha : alphas) {
+			System.out.format("%-10.2f", 100*alpha);
+			for (GreedySolver s : solvers) {
+				s.setMinCoverage(alpha);
+				s.solveFromTrajectory();
+				System.out.format("%15.4f%14.2f%%", s.getObjFn(), 100*s.getCoverage());
+			}
+			System.out.println();
+		}
+		System.out.println();
+	}
+	
+	// SAMPLED modes against the deterministic picks: cost, time, the gap in objective (positive =
+	// the sampled solution is more expensive) and the sets scored, next to what SCAN would score
+	public static void printSamplingGap(SCPModel model, double alpha, double epsilon, long seed) {
+		
+		GreedySolver[][] pairs = {
+			{new GreedyCoverageSolver(GreedyCoverageSolver.Mode.BUCKET), new GreedyCoverageSolver(GreedyCoverageSolver.Mode.SAMPLED)},
+			{new ChvatalSolver(ChvatalSolver.Mode.LAZY), new ChvatalSolver(ChvatalSolver.Mode.SAMPLED)}};
+		
+		System.out.format("\nAlpha: %.2f%%, epsilon: %.3f, seed: %d\n\n", 100*alpha, epsilon, seed);
+		System.out.println("Algorithm        Exact obj    Sampled obj    Gap (%)    Exact (ms)    Sampled (ms)    Sets scored    SCAN would score");
+		System.out.println("-------------------------------------------------------------------------------------------------------------------");
+		for (GreedySolver[] pair : pairs) {
+			SetSampler sampler = pair[1] instanceof ChvatalSolver ? ((ChvatalSolver) pair[1]).getSampler()
+					: ((GreedyCoverageSolver) pair[1]).getSampler();
+			sampler.setEpsilon(epsilon);
+			sampler.setSeed(seed);
+			for (GreedySolver s : pair) {
+				s.setVerbose(false);
+				s.setMinCoverage(alpha);
+				s.setModel(model);
+				s.solve();
+			}
+			double diff = pair[1].getObjFn() - pair[0].getObjFn();
+			double gap = pair[0].getObjFn() != 0 ? 100 * diff / pair[0].getObjFn() : diff == 0 ? 0 : Double.POSITIVE_INFINITY;
+			long scan = (long) pair[1].getSolnSets().size() * model.getNumS(); //every set at every pick
+			System.out.format("%-12s%14.4f%15.4f%11.2f%14d%16d%15d%20d\n", pair[0].getName(), pair[0].getObjFn(), pair[1].getObjFn(), gap,
+					pair[0].getCompTime(), pair[1].getCompTime(), sampler.getNumScored(), scan);
+		}
+		System.out.println();
+	}
+	
 }
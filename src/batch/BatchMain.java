@@ -0,0 +1,102 @@
+/**
+ *
+ */
+package batch;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Command line for BatchPipeline:
+ *
+ *   java batch.BatchMain <directory | file | glob> [--alphas 0.5,0.9,1] [--format csv|jsonl]
+ *                        [--out results.csv] [--io 2] [--cpu 8] [--queue 4]
+ *
+ * Results go to standard output unless --out is given.
+ *
+ */
+
+public class BatchMain {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			usage();
+			return;
+		}
+
+		BatchPipeline pipeline = new BatchPipeline();
+		ResultWriter.Format format = ResultWriter.Format.CSV;
+		String outFile = null;
+		String input = null;
+
+		for (int i = 0; i < args.length; i++) {
+			String a = args[i];
+			if (!a.startsWith("--")) {
+				input = a;
+				continue;
+			}
+			if (i + 1 == args.length) {
+				usage();
+				return;
+			}
+			String v = args[++i];
+			switch (a) {
+				case "--alphas":
+					String[] parts = v.split(",");
+					double[] alphas = new double[parts.length];
+					for (int k = 0; k < parts.length; k++) {
+						alphas[k] = Double.parseDouble(parts[k].trim());
+					}
+					pipeline.setAlphas(alphas);
+					break;
+				case "--format":
+					format = ResultWriter.Format.valueOf(v.toUpperCase());
+					break;
+				case "--out":
+					outFile = v;
+					break;
+				case "--io":
+					pipeline.setIOThreads(Integer.parseInt(v));
+					break;
+				case "--cpu":
+					pipeline.setCPUThreads(Integer.parseInt(v));
+					break;
+				case "--queue":
+					pipeline.setQueueSize(Integer.parseInt(v));
+					break;
+				default:
+					usage();
+					return;
+			}
+		}
+		if (input == null) {
+			usage();
+			return;
+		}
+
+		OutputStream os = outFile == null ? System.out : new FileOutputStream(outFile);
+		Writer w = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+		try {
+			long start = System.currentTimeMillis();
+			int files = pipeline.run(input, new ResultWriter(w, format));
+			System.err.println(files + " files in " + (System.currentTimeMillis() - start) + "ms");
+		}
+		finally {
+			w.flush();
+			if (outFile != null) {
+				w.close();
+			}
+		}
+	}
+
+	private static void usage() {
+		System.err.println("usage: batch.BatchMain <directory | file | glob> [--alphas 0.5,0.9,1] [--format csv|jsonl]"
+				+ " [--out file] [--io n] [--cpu n] [--queue n]");
+	}
+}
@@ -0,0 +1,275 @@
+/**
+ *
+ */
+package batch;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import io.SCPLoader;
+import model.SCPModel;
+import solver.ChvatalSolver;
+import solver.GreedyCostSolver;
+import solver.GreedyCoverageSolver;
+import solver.GreedySolver;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Solves every instance file of a directory (or matching a glob such as "runs/**.txt") with all
+ * heuristics at several coverage levels, writing the results as each file finishes.
+ *
+ * The work is a pipeline of three stages joined by bounded queues:
+ *
+ *   lister thread --paths--> I/O pool (SCPLoader) --models--> CPU pool (solvers) --results--> run()'s thread (ResultWriter)
+ *
+ * A stage whose output queue is full blocks, so at most about queueSize models are held in
+ * memory at any time however many files there are, and a slow disk or a slow writer simply
+ * slows the stages before it down.  Each CPU worker has its own solver instances and solves a
+ * model once per heuristic (to full coverage); every alpha is then read off the trajectory.
+ * A file that cannot be read or solved gives a row with the error instead of stopping the batch.
+ *
+ */
+
+public class BatchPipeline {
+
+	private double[] _alphas = {0.5, 0.9, 1.0};
+	private int _ioThreads = 2;
+	private int _cpuThreads = Runtime.getRuntime().availableProcessors();
+	private int _queueSize = 4;  //loaded models waiting for a CPU worker
+	private Supplier<List<GreedySolver>> _solvers = BatchPipeline::defaultSolvers;
+
+	public void setAlphas(double[] alphas) { _alphas = alphas.clone(); }
+	public void setIOThreads(int n) { _ioThreads = Math.max(1, n); }
+	public void setCPUThreads(int n) { _cpuThreads = Math.max(1, n); }
+	public void setQueueSize(int n) { _queueSize = Math.max(1, n); }
+	public void setSolvers(Supplier<List<GreedySolver>> solvers) { _solvers = solvers; } //called once per CPU worker
+
+	public static List<GreedySolver> defaultSolvers() { //the three heuristics, in their indexed modes (same picks as the scans)
+		return Arrays.asList(new GreedySolver[] {new GreedyCoverageSolver(GreedyCoverageSolver.Mode.BUCKET),
+				new GreedyCostSolver(GreedyCostSolver.Mode.CURSOR), new ChvatalSolver(ChvatalSolver.Mode.LAZY)});
+	}
+
+	private static final Path END_PATH = Paths.get("");
+	private static final Loaded END_MODEL = new Loaded(null, null, null);
+	private static final InstanceResult END_RESULT = new InstanceResult(null);
+
+	private static final class Loaded {
+		final String _file;
+		final SCPModel _model;
+		final String _error;
+
+		Loaded(String file, SCPModel model, String error) {
+			_file = file;
+			_model = model;
+			_error = error;
+		}
+	}
+
+	/**
+	 * Run the whole batch over a directory, a single file or a glob, and return the number of
+	 * files reported.  Throws if the input does not exist or the results cannot be written.
+	 */
+
+	public int run(String input, ResultWriter out) throws IOException {
+		Stream<Path> files = list(input);
+
+		BlockingQueue<Path> paths = new ArrayBlockingQueue<Path>(Math.max(16, 4 * _ioThreads));
+		BlockingQueue<Loaded> models = new ArrayBlockingQueue<Loaded>(_queueSize);
+		BlockingQueue<InstanceResult> results = new ArrayBlockingQueue<InstanceResult>(Math.max(16, 4 * _cpuThreads));
+
+		ExecutorService ioPool = Executors.newFixedThreadPool(_ioThreads);
+		ExecutorService cpuPool = Executors.newFixedThreadPool(_cpuThreads);
+		AtomicInteger ioLeft = new AtomicInteger(_ioThreads);
+		AtomicInteger cpuLeft = new AtomicInteger(_cpuThreads);
+
+		Thread lister = new Thread(() -> {
+			try {
+				Iterator<Path> it = files.iterator();
+				while (it.hasNext()) {
+					paths.put(it.next());
+				}
+			}
+			catch (UncheckedIOException e) { //the listing broke off; report it and finish with what was found
+				putQuietly(results, error(input, e.getCause()));
+			}
+			catch (InterruptedException e) {
+				return;
+			}
+			finally {
+				files.close();
+			}
+			for (int i = 0; i < _ioThreads; i++) {
+				putQuietly(paths, END_PATH);
+			}
+		}, "batch-lister");
+
+		for (int i = 0; i < _ioThreads; i++) {
+			ioPool.execute(() -> {
+				SCPLoader loader = new SCPLoader();
+				try {
+					for (Path p = paths.take(); p != END_PATH; p = paths.take()) {
+						Loaded l;
+						try {
+							l = new Loaded(p.toString(), loader.load(p.toFile()), null);
+						}
+						catch (Throwable e) { //Errors too (e.g. out of memory on a huge file): report it and keep the loader
+							l = new Loaded(p.toString(), null, e.toString());
+						}
+						models.put(l); //blocks while the CPU workers are behind
+					}
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				finally {
+					if (ioLeft.decrementAndGet() == 0) { //the last loader tells every CPU worker to stop
+						for (int k = 0; k < _cpuThreads; k++) {
+							putQuietly(models, END_MODEL);
+						}
+					}
+				}
+			});
+		}
+
+		for (int i = 0; i < _cpuThreads; i++) {
+			cpuPool.execute(() -> {
+				List<GreedySolver> solvers = _solvers.get();
+				try {
+					for (Loaded l = models.take(); l != END_MODEL; l = models.take()) {
+						results.put(solve(l, solvers));
+					}
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				finally {
+					if (cpuLeft.decrementAndGet() == 0) {
+						putQuietly(results, END_RESULT);
+					}
+				}
+			});
+		}
+
+		lister.start();
+		int count = 0;
+		try {
+			for (InstanceResult r = take(results); r != END_RESULT; r = take(results)) {
+				out.write(r);
+				count++;
+			}
+		}
+		finally { //normally everything has stopped by now; after a write error this stops the other stages
+			lister.interrupt();
+			ioPool.shutdownNow();
+			cpuPool.shutdownNow();
+		}
+		return count;
+	}
+
+	private InstanceResult solve(Loaded l, List<GreedySolver> solvers) {
+		InstanceResult r = new InstanceResult(l._file);
+		if (l._model == null) {
+			r._error = l._error;
+			return r;
+		}
+
+		SCPModel model = l._model;
+		r._numE = model.getNumE();
+		r._numS = model.getNumS();
+		try {
+			for (GreedySolver s : solvers) {
+				s.setVerbose(false);
+				s.setModel(model);
+				s.solveTrajectory(); //one solve per heuristic for all the alphas
+				for (double alpha : _alphas) {
+					s.setMinCoverage(alpha);
+					s.solveFromTrajectory();
+					r.add(s.getName(), alpha, s.getObjFn(), s.getCoverage(), s.getSolnSets().size(), s.getCompTime());
+				}
+			}
+		}
+		catch (Throwable e) { //Errors too (e.g. out of memory on a huge instance): report the file and keep the worker for the next one
+			r._error = e.toString();
+		}
+		return r;
+	}
+
+	/**
+	 * Files named by input, lazily: a directory gives its regular files, a file itself, and a
+	 * glob (with * ? [ or {) the files under its fixed leading directory that match it.
+	 */
+
+	static Stream<Path> list(String input) throws IOException {
+		int glob = -1;
+		for (int i = 0; i < input.length() && glob < 0; i++) {
+			if ("*?[{".indexOf(input.charAt(i)) >= 0) {
+				glob = i;
+			}
+		}
+
+		if (glob < 0) {
+			Path p = Paths.get(input);
+			if (Files.isDirectory(p)) {
+				return Files.list(p).filter(Files::isRegularFile);
+			}
+			if (!Files.isRegularFile(p)) {
+				throw new IOException(input + ": no such file or directory");
+			}
+			return Stream.of(p);
+		}
+
+		int slash = input.lastIndexOf(File.separatorChar, glob);
+		if (slash < 0 && File.separatorChar != '/') {
+			slash = input.lastIndexOf('/', glob);
+		}
+		Path base = Paths.get(slash < 0 ? "." : input.substring(0, slash + 1));
+		String pattern = input.substring(slash + 1);
+		if (!Files.isDirectory(base)) {
+			throw new IOException(base + ": no such directory");
+		}
+
+		PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+		int depth = pattern.contains("**") ? Integer.MAX_VALUE : pattern.split("[/\\\\]").length;
+		return Files.walk(base, depth).filter(p -> Files.isRegularFile(p) && matcher.matches(base.relativize(p)));
+	}
+
+	private static InstanceResult error(String file, Exception e) {
+		InstanceResult r = new InstanceResult(file);
+		r._error = e.toString();
+		return r;
+	}
+
+	private static <T> void putQuietly(BlockingQueue<T> q, T item) {
+		try {
+			q.put(item);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static <T> T take(BlockingQueue<T> q) throws IOException {
+		try {
+			return q.take();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while waiting for results", e);
+		}
+	}
+}
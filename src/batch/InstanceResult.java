@@ -0,0 +1,50 @@
+/**
+ *
+ */
+package batch;
+import java.util.Arrays;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Results of one instance file: a row per (solver, alpha), or the error that stopped it.  Only
+ * the numbers are kept (no model or set objects), so a queued result is small.
+ *
+ */
+
+final class InstanceResult {
+
+	final String _file;
+	int _numE, _numS;
+	String _error;
+
+	int _numRows;
+	String[] _solver = new String[8];
+	double[] _alpha = new double[8];
+	double[] _objFn = new double[8];
+	double[] _coverage = new double[8];
+	int[] _numSets = new int[8];
+	long[] _time = new long[8];
+
+	InstanceResult(String file) {
+		_file = file;
+	}
+
+	void add(String solver, double alpha, double objFn, double coverage, int numSets, long time) {
+		if (_numRows == _solver.length) {
+			int cap = _numRows * 2;
+			_solver = Arrays.copyOf(_solver, cap);
+			_alpha = Arrays.copyOf(_alpha, cap);
+			_objFn = Arrays.copyOf(_objFn, cap);
+			_coverage = Arrays.copyOf(_coverage, cap);
+			_numSets = Arrays.copyOf(_numSets, cap);
+			_time = Arrays.copyOf(_time, cap);
+		}
+		_solver[_numRows] = solver;
+		_alpha[_numRows] = alpha;
+		_objFn[_numRows] = objFn;
+		_coverage[_numRows] = coverage;
+		_numSets[_numRows] = numSets;
+		_time[_numRows++] = time;
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ *
+ */
+package batch;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Writes batch results as they come, one row per (instance, solver, alpha), either as CSV with a
+ * header line or as JSON lines.  Rows of an instance are flushed together, so a partly written
+ * file always ends on a complete instance.
+ *
+ */
+
+public class ResultWriter {
+
+	public enum Format { CSV, JSONL }
+
+	private static final String[] COLUMNS = {"file", "n", "m", "solver", "alpha", "objective", "coverage",
+			"num_sets", "time_ms", "error"};
+
+	private final Writer _out;
+	private final Format _format;
+	private boolean _started;
+
+	public ResultWriter(Writer out, Format format) {
+		_out = out;
+		_format = format;
+	}
+
+	void write(InstanceResult r) throws IOException {
+		if (!_started && _format == Format.CSV) {
+			_out.write(String.join(",", COLUMNS) + "\n");
+		}
+		_started = true;
+
+		if (r._error != null) { //one row saying why the file could not be solved
+			row(r._file, r._numE, r._numS, "", Double.NaN, Double.NaN, Double.NaN, 0, 0, r._error);
+		}
+		for (int i = 0; i < r._numRows; i++) {
+			row(r._file, r._numE, r._numS, r._solver[i], r._alpha[i], r._objFn[i], r._coverage[i],
+					r._numSets[i], r._time[i], null);
+		}
+		_out.flush();
+	}
+
+	private void row(String file, int n, int m, String solver, double alpha, double obj, double cov,
+			int numSets, long time, String error) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		if (_format == Format.CSV) {
+			sb.append(csv(file)).append(',').append(n).append(',').append(m).append(',').append(csv(solver)).append(',')
+				.append(num(alpha)).append(',').append(num(obj)).append(',').append(num(cov)).append(',')
+				.append(numSets).append(',').append(time).append(',').append(error == null ? "" : csv(error));
+		}
+		else {
+			sb.append("{\"file\":").append(json(file)).append(",\"n\":").append(n).append(",\"m\":").append(m)
+				.append(",\"solver\":").append(json(solver)).append(",\"alpha\":").append(jsonNum(alpha))
+				.append(",\"objective\":").append(jsonNum(obj)).append(",\"coverage\":").append(jsonNum(cov))
+				.append(",\"num_sets\":").append(numSets).append(",\"time_ms\":").append(time)
+				.append(",\"error\":").append(error == null ? "null" : json(error)).append('}');
+		}
+		sb.append('\n');
+		_out.write(sb.toString());
+	}
+
+	private static String num(double v) {
+		return Double.isNaN(v) ? "" : Double.toString(v);
+	}
+
+	private static String jsonNum(double v) { //JSON has no NaN or infinity
+		return Double.isNaN(v) || Double.isInfinite(v) ? "null" : Double.toString(v);
+	}
+
+	private static String csv(String s) {
+		if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+			return s;
+		}
+		return '"' + s.replace("\"", "\"\"") + '"';
+	}
+
+	private static String json(String s) {
+		StringBuilder sb = new StringBuilder("\"");
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			}
+			else if (c < 0x20) {
+				sb.append(String.format("\\u%04x", (int) c));
+			}
+			else {
+				sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+}
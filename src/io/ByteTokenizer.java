@@ -0,0 +1,209 @@
+/**
+ *
+ */
+package io;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Whitespace-separated number tokenizer working directly on the bytes of a (mapped) buffer, so
+ * no String is created per token.  Doubles whose digits fit in 53 bits, with at most 22 decimals,
+ * are parsed as mantissa / 10^k, which is one correctly rounded division and so gives the same
+ * value as Double.parseDouble; anything else (exponents, long mantissas) falls back to it.
+ *
+ */
+
+final class ByteTokenizer {
+
+	private static final double[] POW10 = new double[23];
+	static {
+		POW10[0] = 1;
+		for (int i = 1; i < POW10.length; i++) {
+			POW10[i] = POW10[i - 1] * 10; //exact up to 10^22
+		}
+	}
+
+	private final ByteBuffer _buf;
+	private final long _base;   //file offset of _buf's position 0, for error messages
+	private final int _limit;
+	private int _pos;
+
+	ByteTokenizer(ByteBuffer buf, long base, int pos, int limit) {
+		_buf = buf;
+		_base = base;
+		_pos = pos;
+		_limit = limit;
+	}
+
+	int position() { return _pos; }
+
+	boolean hasNext() { //skips whitespace; false at the end of the range
+		while (_pos < _limit && isSpace(_buf.get(_pos))) {
+			_pos++;
+		}
+		return _pos < _limit;
+	}
+
+	int nextInt() throws IOException {
+		if (!hasNext()) {
+			throw error("number expected, found end of input");
+		}
+
+		int start = _pos;
+		boolean neg = false;
+		byte b = _buf.get(_pos);
+		if (b == '-' || b == '+') {
+			neg = b == '-';
+			_pos++;
+		}
+
+		long v = 0;
+		int digits = 0;
+		while (_pos < _limit && (b = _buf.get(_pos)) >= '0' && b <= '9') {
+			v = v * 10 + (b - '0');
+			if (++digits > 10) {
+				break;
+			}
+			_pos++;
+		}
+		if (neg) {
+			v = -v;
+		}
+
+		if (digits == 0 || digits > 10 || v < Integer.MIN_VALUE || v > Integer.MAX_VALUE || !atTokenEnd()) {
+			_pos = start;
+			throw error("bad integer '" + token() + "'");
+		}
+		return (int) v;
+	}
+
+	double nextDouble() throws IOException {
+		if (!hasNext()) {
+			throw error("number expected, found end of input");
+		}
+
+		int start = _pos;
+		boolean neg = false;
+		byte b = _buf.get(_pos);
+		if (b == '-' || b == '+') {
+			neg = b == '-';
+			_pos++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int decimals = 0;
+		boolean dot = false;
+		while (_pos < _limit) {
+			b = _buf.get(_pos);
+			if (b >= '0' && b <= '9') {
+				mantissa = mantissa * 10 + (b - '0');
+				digits++;
+				if (dot) {
+					decimals++;
+				}
+			}
+			else if (b == '.' && !dot) {
+				dot = true;
+			}
+			else {
+				break;
+			}
+			if (digits > 18) {
+				break;
+			}
+			_pos++;
+		}
+
+		if (digits > 0 && digits <= 18 && mantissa < (1L << 53) && decimals < POW10.length && atTokenEnd()) {
+			double v = mantissa / POW10[decimals];
+			return neg ? -v : v;
+		}
+
+		//exponent, very long mantissa, or garbage: let the JDK decide
+		_pos = start;
+		String token = token();
+		try {
+			return Double.parseDouble(token);
+		}
+		catch (NumberFormatException e) {
+			throw error("bad number '" + token + "'");
+		}
+	}
+
+	/**
+	 * If the current line (from the current position) is exactly the token "0", skip past it
+	 * and return true; otherwise leave the position alone.  Used to find set boundaries.
+	 */
+
+	boolean skipZeroLine() {
+		int p = _pos;
+		while (p < _limit && (_buf.get(p) == ' ' || _buf.get(p) == '\t')) {
+			p++;
+		}
+		if (p >= _limit || _buf.get(p) != '0') {
+			return false;
+		}
+		p++;
+		while (p < _limit && (_buf.get(p) == ' ' || _buf.get(p) == '\t' || _buf.get(p) == '\r')) {
+			p++;
+		}
+		if (p < _limit && _buf.get(p) != '\n') {
+			return false;
+		}
+		_pos = Math.min(p + 1, _limit);
+		return true;
+	}
+
+	void skipLine() { //move to the start of the next line
+		while (_pos < _limit && _buf.get(_pos) != '\n') {
+			_pos++;
+		}
+		if (_pos < _limit) {
+			_pos++;
+		}
+	}
+
+	int tokensOnLine() { //number of tokens from the current position to the end of the line
+		int p = _pos;
+		int count = 0;
+		boolean in = false;
+		while (p < _limit && _buf.get(p) != '\n') {
+			boolean space = isSpace(_buf.get(p));
+			if (!space && !in) {
+				count++;
+			}
+			in = !space;
+			p++;
+		}
+		return count;
+	}
+
+	private boolean atTokenEnd() {
+		return _pos >= _limit || isSpace(_buf.get(_pos));
+	}
+
+	private String token() { //current token as a String (error paths and rare fallbacks only)
+		int end = _pos;
+		while (end < _limit && !isSpace(_buf.get(end)) && end - _pos < 64) {
+			end++;
+		}
+		byte[] bytes = new byte[end - _pos];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = _buf.get(_pos + i);
+		}
+		_pos = end;
+		return new String(bytes, StandardCharsets.US_ASCII);
+	}
+
+	private IOException error(String message) {
+		return new IOException(message + " at byte " + (_base + _pos));
+	}
+
+	private static boolean isSpace(byte b) {
+		return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+	}
+}
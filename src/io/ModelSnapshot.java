@@ -0,0 +1,218 @@
+/**
+ *
+ */
+package io;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import model.SCPModel;
+import util.CSRStorage;
+import util.ElementSet;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Binary snapshot of an SCPModel, so a large instance is parsed from text once and reloaded
+ * quickly afterwards.  Layout (little-endian):
+ *
+ *   header   magic "SCPB", version, m, n, nnz (int each), 12 bytes padding   (32 bytes)
+ *   costs    double[m]      set costs, in set ID order
+ *   setIDs   int[m]
+ *   offsets  int[m+1]       set r owns elements[offsets[r] .. offsets[r+1]-1]
+ *   elements int[nnz]       dense element IDs, sorted within each set
+ *   origIDs  int[n]         dense ID -> original element ID
+ *
+ * which is exactly the CSRStorage layout, so read() maps the file with FileChannel.map and
+ * bulk-copies each section straight into the storage arrays: one copy per array and no
+ * per-element objects (a heap int[] cannot be backed by the mapping itself).
+ *
+ */
+
+public class ModelSnapshot {
+
+	public static final int MAGIC = 0x42504353; //"SCPB" read as a little-endian int
+	public static final int VERSION = 1;
+	private static final int HEADER_BYTES = 32;
+	private static final int WINDOW = 1 << 28; //bytes mapped at a time (a single mapping is limited to 2GB)
+
+	public static void write(SCPModel model, File file) throws IOException {
+		CSRStorage st = model.getStorage();
+		ElementSet[] sets = model.getSCP().toArray(new ElementSet[0]); //set ID order
+		int m = sets.length;
+		int n = st.getNumE();
+		int nnz = 0;
+		for (ElementSet es : sets) {
+			nnz += es.size();
+		}
+
+		try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			Writer out = new Writer(ch);
+			out.putInt(MAGIC);
+			out.putInt(VERSION);
+			out.putInt(m);
+			out.putInt(n);
+			out.putInt(nnz);
+			for (int i = 0; i < 3; i++) {
+				out.putInt(0);
+			}
+
+			for (ElementSet es : sets) {
+				out.putDouble(es.getCost());
+			}
+			for (ElementSet es : sets) {
+				out.putInt(es.getSetID());
+			}
+			int offset = 0;
+			out.putInt(0);
+			for (ElementSet es : sets) {
+				offset += es.size();
+				out.putInt(offset);
+			}
+			for (ElementSet es : sets) {
+				for (int i = 0; i < es.size(); i++) {
+					out.putInt(es.elementAt(i));
+				}
+			}
+			for (int d = 0; d < n; d++) {
+				out.putInt(st.origID(d));
+			}
+			out.flush();
+		}
+	}
+
+	public static SCPModel read(File file) throws IOException {
+		try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = ch.size();
+			if (size < HEADER_BYTES) {
+				throw new IOException(file + ": not a model snapshot (too short)");
+			}
+
+			ByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt(0) != MAGIC) {
+				throw new IOException(file + ": not a model snapshot (bad magic)");
+			}
+			if (header.getInt(4) != VERSION) {
+				throw new IOException(file + ": unsupported snapshot version " + header.getInt(4));
+			}
+			int m = header.getInt(8);
+			int n = header.getInt(12);
+			int nnz = header.getInt(16);
+
+			long expected = HEADER_BYTES + 8L * m + 4L * m + 4L * (m + 1) + 4L * nnz + 4L * n;
+			if (m < 0 || n < 0 || nnz < 0 || size != expected) {
+				throw new IOException(file + ": corrupt snapshot (size " + size + ", expected " + expected + ")");
+			}
+
+			long pos = HEADER_BYTES;
+			double[] costs = new double[m];
+			pos = readDoubles(ch, pos, costs);
+			int[] setIDs = new int[m];
+			pos = readInts(ch, pos, setIDs);
+			int[] offsets = new int[m + 1];
+			pos = readInts(ch, pos, offsets);
+			int[] elements = new int[nnz];
+			pos = readInts(ch, pos, elements);
+			int[] origIDs = new int[n];
+			readInts(ch, pos, origIDs);
+
+			check(file, n, setIDs, offsets, elements); //the storage adopts the arrays as they are
+			return new SCPModel(new CSRStorage(setIDs, costs, offsets, elements, origIDs));
+		}
+	}
+
+	/**
+	 * Throw unless the arrays are what write() produces: set IDs ascending, offsets running from
+	 * 0 up to nnz without going back, and each row's dense IDs below n and strictly ascending.
+	 * CSRStorage takes them without a copy or a check, and a bad row would otherwise surface
+	 * much later as a wrong answer or an ArrayIndexOutOfBoundsException in a solver.
+	 */
+
+	private static void check(File file, int n, int[] setIDs, int[] offsets, int[] elements) throws IOException {
+		int m = setIDs.length;
+		for (int r = 1; r < m; r++) {
+			if (setIDs[r] <= setIDs[r - 1]) {
+				throw new IOException(file + ": corrupt snapshot (set ID " + setIDs[r] + " after " + setIDs[r - 1] + ")");
+			}
+		}
+		if (offsets[0] != 0 || offsets[m] != elements.length) {
+			throw new IOException(file + ": corrupt snapshot (offsets run from " + offsets[0] + " to " + offsets[m]
+					+ ", expected 0 to " + elements.length + ")");
+		}
+		for (int r = 0; r < m; r++) {
+			int start = offsets[r], end = offsets[r + 1];
+			if (end < start || end > elements.length) {
+				throw new IOException(file + ": corrupt snapshot (offsets of set " + setIDs[r] + ": " + start + ".." + end + ")");
+			}
+			for (int p = start; p < end; p++) {
+				if (elements[p] < 0 || elements[p] >= n || (p > start && elements[p] <= elements[p - 1])) {
+					throw new IOException(file + ": corrupt snapshot (elements of set " + setIDs[r] + " not sorted dense IDs below " + n + ")");
+				}
+			}
+		}
+	}
+
+	private static long readInts(FileChannel ch, long pos, int[] dst) throws IOException {
+		int done = 0;
+		while (done < dst.length) {
+			int count = Math.min(dst.length - done, WINDOW / 4);
+			MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, pos, 4L * count);
+			map.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(dst, done, count);
+			done += count;
+			pos += 4L * count;
+		}
+		return pos;
+	}
+
+	private static long readDoubles(FileChannel ch, long pos, double[] dst) throws IOException {
+		int done = 0;
+		while (done < dst.length) {
+			int count = Math.min(dst.length - done, WINDOW / 8);
+			MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, pos, 8L * count);
+			map.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(dst, done, count);
+			done += count;
+			pos += 8L * count;
+		}
+		return pos;
+	}
+
+	/**
+	 * Sequential little-endian writer over a channel with a 1MB direct buffer.
+	 */
+
+	private static class Writer {
+
+		private final FileChannel _ch;
+		private final ByteBuffer _buf = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+
+		Writer(FileChannel ch) {
+			_ch = ch;
+		}
+
+		void putInt(int v) throws IOException {
+			if (_buf.remaining() < 4) {
+				flush();
+			}
+			_buf.putInt(v);
+		}
+
+		void putDouble(double v) throws IOException {
+			if (_buf.remaining() < 8) {
+				flush();
+			}
+			_buf.putDouble(v);
+		}
+
+		void flush() throws IOException {
+			_buf.flip();
+			while (_buf.hasRemaining()) {
+				_ch.write(_buf);
+			}
+			_buf.clear();
+		}
+	}
+}
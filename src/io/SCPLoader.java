@@ -0,0 +1,334 @@
+/**
+ *
+ */
+package io;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import model.SCPModel;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Loads weighted set cover instances from text, working on the mapped bytes of the file.
+ *
+ * Two formats are understood (load() tells them apart by the first line):
+ *  - the files/SCP_S_*.txt layout: n, m, then for each set its cost, its element IDs and a 0
+ *    terminator, one number per line.  Sets get IDs 1..m in file order.
+ *  - the OR-Library scp layout: "rows columns", the column costs, then for every row the number
+ *    of columns covering it followed by those (1-based) columns.  Columns are the sets (IDs 1..n)
+ *    and rows are the elements (IDs 1..m).
+ *
+ * Large SCP_S files are cut into chunks at set boundaries (a line holding just the 0
+ * terminator) and the chunks are parsed in parallel on a fork-join pool.  A cost of exactly 0
+ * also looks like a terminator; the chunks are therefore stitched together in order, and a chunk
+ * whose assumed starting state turns out wrong is simply parsed again from the right state.
+ *
+ */
+
+public class SCPLoader {
+
+	private static final long MIN_PARALLEL_BYTES = 1 << 20;  //smaller files are parsed in one chunk
+	private static final long MAX_CHUNK_BYTES = 1L << 28;    //also keeps every mapping far below 2GB
+	private static final int BOUNDARY_WINDOW = 1 << 22;      //how far past a split point to look for a terminator
+
+	private final ForkJoinPool _pool;
+
+	public SCPLoader() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	public SCPLoader(ForkJoinPool pool) {
+		_pool = pool;
+	}
+
+	/**
+	 * Load either format, deciding by the number of tokens on the first line.
+	 */
+
+	public SCPModel load(File file) throws IOException {
+		try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer head = ch.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(ch.size(), 4096));
+			ByteTokenizer tok = new ByteTokenizer(head, 0, 0, head.limit());
+			tok.hasNext();
+			boolean orLib = tok.tokensOnLine() >= 2;
+			return orLib ? loadORLibrary(ch) : loadSCP(ch);
+		}
+	}
+
+	public SCPModel loadSCP(File file) throws IOException {
+		try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return loadSCP(ch);
+		}
+	}
+
+	public SCPModel loadORLibrary(File file) throws IOException {
+		try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return loadORLibrary(ch);
+		}
+	}
+
+	private SCPModel loadSCP(FileChannel ch) throws IOException {
+		long size = ch.size();
+
+		//header: n (unused, the model counts the elements itself) and m
+		ByteBuffer head = ch.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, 4096));
+		ByteTokenizer tok = new ByteTokenizer(head, 0, 0, head.limit());
+		tok.nextInt();
+		int m = tok.nextInt();
+		tok.skipLine();
+		long dataStart = tok.position();
+
+		//cut the data into chunks that start right after a terminator line
+		List<long[]> ranges = new ArrayList<long[]>();
+		int wanted = size < MIN_PARALLEL_BYTES ? 1
+				: (int)Math.max(_pool.getParallelism() * 4L, (size - dataStart) / MAX_CHUNK_BYTES + 1);
+		long from = dataStart;
+		for (int k = 1; k < wanted && from < size; k++) {
+			long split = dataStart + (size - dataStart) * k / wanted;
+			if (split <= from) {
+				continue;
+			}
+			long boundary = findBoundary(ch, split, size);
+			if (boundary < 0 || boundary >= size || boundary - from > Integer.MAX_VALUE) {
+				continue; //no terminator close by: this chunk just grows
+			}
+			ranges.add(new long[] {from, boundary});
+			from = boundary;
+		}
+		ranges.add(new long[] {from, size});
+
+		//parse all chunks in parallel assuming each starts with a cost line
+		List<Future<Chunk>> futures = new ArrayList<Future<Chunk>>();
+		for (long[] r : ranges) {
+			futures.add(_pool.submit(() -> parseChunk(ch, r[0], r[1], false)));
+		}
+
+		Chunk[] chunks = new Chunk[ranges.size()];
+		boolean open = false;
+		for (int i = 0; i < chunks.length; i++) { //stitch in order, re-parsing a chunk whose start state was wrong
+			chunks[i] = join(futures.get(i));
+			if (chunks[i]._startOpen != open) {
+				chunks[i] = parseChunk(ch, ranges.get(i)[0], ranges.get(i)[1], open);
+			}
+			open = chunks[i]._endOpen;
+		}
+
+		return assemble(chunks, m);
+	}
+
+	private static Chunk join(Future<Chunk> f) throws IOException {
+		try {
+			return f.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while loading", e);
+		}
+		catch (java.util.concurrent.ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Start of the first line after position p that follows a line holding just "0", or -1.
+	 */
+
+	private static long findBoundary(FileChannel ch, long p, long size) throws IOException {
+		int len = (int)Math.min(BOUNDARY_WINDOW, size - p);
+		ByteBuffer window = ch.map(FileChannel.MapMode.READ_ONLY, p, len);
+		ByteTokenizer tok = new ByteTokenizer(window, p, 0, len);
+		tok.skipLine(); //p is most likely in the middle of a line
+
+		while (tok.position() < len) {
+			if (tok.skipZeroLine()) {
+				return p + tok.position();
+			}
+			tok.skipLine();
+		}
+		return -1;
+	}
+
+	private static Chunk parseChunk(FileChannel ch, long from, long to, boolean startOpen) throws IOException {
+		MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+		ByteTokenizer tok = new ByteTokenizer(buf, from, 0, (int)(to - from));
+		Chunk c = new Chunk(startOpen);
+
+		boolean open = startOpen;
+		if (open) {
+			c.beginSet(Double.NaN); //continues the set left open by the previous chunk
+		}
+		while (tok.hasNext()) {
+			if (!open) {
+				c.beginSet(tok.nextDouble());
+				open = true;
+			}
+			else {
+				int e = tok.nextInt();
+				if (e == 0) {
+					open = false;
+				}
+				else {
+					c.add(e);
+				}
+			}
+		}
+
+		c._endOpen = open;
+		return c;
+	}
+
+	private static SCPModel assemble(Chunk[] chunks, int m) throws IOException {
+		SCPModel model = new SCPModel();
+		int setID = 1;
+
+		double pendingCost = 0;
+		int[] pending = new int[16]; //elements of a set that spans chunks
+		int pendingLen = 0;
+		boolean hasPending = false;
+
+		for (Chunk c : chunks) {
+			for (int k = 0; k < c._numSets; k++) {
+				int from = c._starts[k];
+				int to = k + 1 < c._numSets ? c._starts[k + 1] : c._numElems;
+				boolean continues = k == 0 && c._startOpen;             //tail of the pending set
+				boolean unfinished = k == c._numSets - 1 && c._endOpen; //goes on in the next chunk
+
+				if (!continues) {
+					if (!unfinished) { //the common case: the whole set is in this chunk
+						model.addSetToCover(setID++, c._costs[k], c._elems, from, to);
+						continue;
+					}
+					pendingCost = c._costs[k];
+					pendingLen = 0;
+				}
+
+				if (pending.length < pendingLen + to - from) {
+					pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLen + to - from));
+				}
+				System.arraycopy(c._elems, from, pending, pendingLen, to - from);
+				pendingLen += to - from;
+				hasPending = unfinished;
+
+				if (!unfinished) {
+					model.addSetToCover(setID++, pendingCost, pending, 0, pendingLen);
+				}
+			}
+		}
+
+		if (hasPending) { //last set without its 0 terminator at the end of the file
+			model.addSetToCover(setID++, pendingCost, pending, 0, pendingLen);
+		}
+
+		if (setID - 1 != m) {
+			throw new IOException("header says " + m + " sets but the file holds " + (setID - 1));
+		}
+		return model;
+	}
+
+	private static SCPModel loadORLibrary(FileChannel ch) throws IOException {
+		long size = ch.size();
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("OR-Library files above 2GB are not supported");
+		}
+
+		MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		ByteTokenizer tok = new ByteTokenizer(buf, 0, 0, (int)size);
+		int rows = tok.nextInt();
+		int cols = tok.nextInt();
+
+		double[] costs = new double[cols];
+		for (int j = 0; j < cols; j++) {
+			costs[j] = tok.nextDouble();
+		}
+
+		//rows as read: rowStart[i] .. rowStart[i+1]-1 index into rowCols (1-based column numbers)
+		int[] rowStart = new int[rows + 1];
+		int[] rowCols = new int[Math.max(16, rows * 4)];
+		int nnz = 0;
+		for (int i = 0; i < rows; i++) {
+			int k = tok.nextInt();
+			if (nnz + k > rowCols.length) {
+				rowCols = Arrays.copyOf(rowCols, Math.max(rowCols.length * 2, nnz + k));
+			}
+			for (int t = 0; t < k; t++) {
+				int col = tok.nextInt();
+				if (col < 1 || col > cols) {
+					throw new IOException("row " + (i + 1) + " refers to column " + col + " of " + cols);
+				}
+				rowCols[nnz++] = col;
+			}
+			rowStart[i + 1] = nnz;
+		}
+
+		//transpose to columns (the sets); rows come out ascending within each column
+		int[] colStart = new int[cols + 1];
+		for (int p = 0; p < nnz; p++) {
+			colStart[rowCols[p]]++;
+		}
+		for (int j = 0; j < cols; j++) {
+			colStart[j + 1] += colStart[j];
+		}
+		int[] colRows = new int[nnz];
+		int[] fill = Arrays.copyOf(colStart, cols);
+		for (int i = 0; i < rows; i++) {
+			for (int p = rowStart[i]; p < rowStart[i + 1]; p++) {
+				colRows[fill[rowCols[p] - 1]++] = i + 1;
+			}
+		}
+
+		SCPModel model = new SCPModel();
+		for (int j = 0; j < cols; j++) {
+			model.addSetToCover(j + 1, costs[j], colRows, colStart[j], colStart[j + 1]);
+		}
+		return model;
+	}
+
+	/**
+	 * Sets parsed from one chunk, back to back.  Set k's elements are _elems[_starts[k]] up to
+	 * the next start (or _numElems).  If _startOpen, set 0 continues the previous chunk's last
+	 * set; if _endOpen, the last set goes on in the next chunk.
+	 */
+
+	private static final class Chunk {
+
+		final boolean _startOpen;
+		boolean _endOpen;
+		double[] _costs = new double[64];
+		int[] _starts = new int[64];
+		int _numSets;
+		int[] _elems = new int[256];
+		int _numElems;
+
+		Chunk(boolean startOpen) {
+			_startOpen = startOpen;
+		}
+
+		void beginSet(double cost) {
+			if (_numSets == _costs.length) {
+				_costs = Arrays.copyOf(_costs, _numSets * 2);
+				_starts = Arrays.copyOf(_starts, _numSets * 2);
+			}
+			_costs[_numSets] = cost;
+			_starts[_numSets++] = _numElems;
+		}
+
+		void add(int e) {
+			if (_numElems == _elems.length) {
+				_elems = Arrays.copyOf(_elems, _numElems * 2);
+			}
+			_elems[_numElems++] = e;
+		}
+	}
+}
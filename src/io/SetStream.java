@@ -0,0 +1,136 @@
+/**
+ *
+ */
+package io;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Sequential passes over the sets of a files/SCP_S_*.txt instance without loading it: pass()
+ * maps the file a window at a time (no bigger than WINDOW_BYTES, cut after a line break so no
+ * number is split) and hands every set to a visitor, with IDs 1..m in file order as SCPLoader
+ * gives them.  Only the current window and the elements of the current set are held, so the
+ * file can be far bigger than the heap.  OR-Library files list the sets covering each element
+ * rather than the elements of each set and cannot be streamed this way.
+ *
+ */
+
+public final class SetStream implements AutoCloseable {
+
+	private static final int WINDOW_BYTES = 1 << 26;
+
+	private final FileChannel _ch;
+	private final long _size;
+	private final long _dataStart; //first byte after the header line
+	private final int _numE;       //as the header says
+	private final int _numS;
+	private int[] _elems = new int[256];
+
+	/**
+	 * Called once per set, in file order.  elems[0..len-1] are its element IDs as listed (the
+	 * array is reused for the next set and may be overwritten); returning false ends the pass.
+	 */
+
+	public interface SetVisitor {
+		boolean visit(int setID, double cost, int[] elems, int len);
+	}
+
+	public SetStream(File file) throws IOException {
+		_ch = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			_size = _ch.size();
+			ByteBuffer head = _ch.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(_size, 4096));
+			ByteTokenizer tok = new ByteTokenizer(head, 0, 0, head.limit());
+			tok.hasNext();
+			if (tok.tokensOnLine() >= 2) {
+				throw new IOException(file + " is in the OR-Library layout, which lists sets by element and cannot be streamed");
+			}
+			_numE = tok.nextInt();
+			_numS = tok.nextInt();
+			tok.skipLine();
+			_dataStart = tok.position();
+		}
+		catch (IOException | RuntimeException e) {
+			_ch.close();
+			throw e;
+		}
+	}
+
+	public int getNumE() { return _numE; }
+	public int getNumS() { return _numS; }
+	public long size() { return _size; }
+
+	/**
+	 * One pass from the first set on.  Returns the number of bytes read, which is less than the
+	 * file when the visitor ended the pass.
+	 */
+
+	public long pass(SetVisitor visitor) throws IOException {
+		int setID = 0;
+		boolean open = false; //inside a set: the next number is an element or its 0 terminator
+		double cost = 0;
+		int len = 0;
+
+		long pos = _dataStart;
+		while (pos < _size) {
+			int mapped = (int)Math.min(WINDOW_BYTES, _size - pos);
+			MappedByteBuffer buf = _ch.map(FileChannel.MapMode.READ_ONLY, pos, mapped);
+			int limit = mapped;
+			if (pos + mapped < _size) { //not the last window: stop after its last line break
+				while (limit > 0 && buf.get(limit - 1) != '\n') {
+					limit--;
+				}
+				if (limit == 0) {
+					throw new IOException("no line break in the " + mapped + " bytes from offset " + pos);
+				}
+			}
+
+			ByteTokenizer tok = new ByteTokenizer(buf, pos, 0, limit);
+			while (tok.hasNext()) {
+				if (!open) {
+					cost = tok.nextDouble();
+					len = 0;
+					open = true;
+					continue;
+				}
+				int e = tok.nextInt();
+				if (e > 0) {
+					if (len == _elems.length) {
+						_elems = Arrays.copyOf(_elems, len * 2);
+					}
+					_elems[len++] = e;
+				}
+				else if (e == 0) {
+					open = false;
+					if (!visitor.visit(++setID, cost, _elems, len)) {
+						return pos + tok.position() - _dataStart;
+					}
+				}
+				else {
+					throw new IOException("negative element ID " + e + " in set " + (setID + 1));
+				}
+			}
+			pos += limit;
+		}
+
+		if (open && !visitor.visit(++setID, cost, _elems, len)) { //last set without its 0 terminator at the end of the file
+			return _size - _dataStart;
+		}
+		if (setID != _numS) {
+			throw new IOException("header says " + _numS + " sets but the file holds " + setID);
+		}
+		return _size - _dataStart;
+	}
+
+	@Override
+	public void close() throws IOException {
+		_ch.close();
+	}
+}
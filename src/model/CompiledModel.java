@@ -0,0 +1,159 @@
+/**
+ *
+ */
+package model;
+import java.util.Arrays;
+import util.CSRStorage;
+import util.ElementSet;
+import util.IntIntHashMap;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Immutable, pre-indexed snapshot of an SCPModel, produced by SCPModel.freeze().  Everything a
+ * solver needs before its first pick is computed once here and then only read, so any number of
+ * solvers can share one CompiledModel from different threads.
+ *
+ * Sets are numbered by "rank", their position in the model's set ID order (the TreeSet order the
+ * scans walk in), and elements by the model's dense IDs 0..n-1.  Held data:
+ *  - the sets' IDs, costs, sizes and elements, copied in rank order (compressed rows)
+ *  - the dense element dictionary (dense -> original and original -> dense)
+ *  - per-element frequency and the element -> sets index: the ranks of the sets containing
+ *    element e are setAt(setsStart(e)) .. setAt(setsEnd(e) - 1), ascending
+ *
+ */
+
+public final class CompiledModel {
+
+	private final int _numS;
+	private final int _numE;
+
+	private final ElementSet[] _sets;     //rank -> view
+	private final int[] _setIDs;
+	private final double[] _costs;
+	private final int[] _offsets;         //rank r owns _elements[_offsets[r]] .. _elements[_offsets[r+1]-1]
+	private final int[] _elements;
+	private final int[] _rankOf;          //storage index -> rank (-1 if that row is not in the model)
+
+	private final int[] _origIDs;         //dense -> original element ID
+	private final IntIntHashMap _denseOf; //original -> dense
+	private final int[] _elemStart;       //dense -> start of its row in _elemSets (the row length is its frequency)
+	private final int[] _elemSets;
+	private volatile long _contentHash;   //0 until getContentHash() is first called
+
+	CompiledModel(SCPModel model) {
+		CSRStorage st = model.getStorage();
+		_sets = model.getSCP().toArray(new ElementSet[0]);
+		_numS = _sets.length;
+		_numE = st.getNumE();
+
+		_setIDs = new int[_numS];
+		_costs = new double[_numS];
+		_offsets = new int[_numS + 1];
+		_rankOf = new int[st.getNumS()];
+		Arrays.fill(_rankOf, -1);
+
+		long nnz = 0;
+		for (int r = 0; r < _numS; r++) {
+			nnz += _sets[r].size();
+		}
+		_elements = new int[(int)nnz];
+		_elemStart = new int[_numE + 1];
+
+		for (int r = 0; r < _numS; r++) { //sets in rank order, counting element frequencies on the way
+			ElementSet es = _sets[r];
+			_setIDs[r] = es.getSetID();
+			_costs[r] = es.getCost();
+			_rankOf[es.getIndex()] = r;
+			int p = _offsets[r];
+			for (int i = 0; i < es.size(); i++) {
+				int e = es.elementAt(i);
+				_elements[p + i] = e;
+				_elemStart[e + 1]++;
+			}
+			_offsets[r + 1] = p + es.size();
+		}
+
+		for (int e = 0; e < _numE; e++) {
+			_elemStart[e + 1] += _elemStart[e];
+		}
+		_elemSets = new int[_elemStart[_numE]];
+		int[] fill = new int[_numE];
+		for (int r = 0; r < _numS; r++) { //ranks arrive in ascending order
+			for (int p = _offsets[r]; p < _offsets[r + 1]; p++) {
+				int e = _elements[p];
+				_elemSets[_elemStart[e] + fill[e]++] = r;
+			}
+		}
+
+		_origIDs = new int[_numE];
+		_denseOf = new IntIntHashMap(_numE);
+		for (int d = 0; d < _numE; d++) {
+			_origIDs[d] = st.origID(d);
+			_denseOf.put(_origIDs[d], d);
+		}
+	}
+
+	//model statistics
+	public int getNumS() { return _numS; }
+	public int getNumE() { return _numE; }
+	public int getNumEntries() { return _elements.length; } //total size of all sets
+
+	//sets, by rank
+	public ElementSet getSet(int rank) { return _sets[rank]; }
+	public int getSetID(int rank) { return _setIDs[rank]; }
+	public double getCost(int rank) { return _costs[rank]; }
+	public int getSize(int rank) { return _offsets[rank + 1] - _offsets[rank]; }
+	public int start(int rank) { return _offsets[rank]; }
+	public int end(int rank) { return _offsets[rank + 1]; }
+	public int element(int pos) { return _elements[pos]; }
+	public int rankOf(ElementSet es) { //-1 if the set is not part of this model; any view of the same storage row matches
+		int i = es.getIndex();
+		if (i >= _rankOf.length || _rankOf[i] < 0) {
+			return -1;
+		}
+		return _sets[_rankOf[i]].getStorage() == es.getStorage() ? _rankOf[i] : -1;
+	}
+	public int rankOfID(int setID) { //-1 if no set has this ID (ranks are in ID order)
+		int r = Arrays.binarySearch(_setIDs, setID);
+		return r < 0 ? -1 : r;
+	}
+
+	//elements, by dense ID
+	public int origID(int dense) { return _origIDs[dense]; }
+	public int denseID(int origID) { return _denseOf.get(origID); }
+	public int getFrequency(int dense) { return _elemStart[dense + 1] - _elemStart[dense]; }
+	public int setsStart(int dense) { return _elemStart[dense]; }
+	public int setsEnd(int dense) { return _elemStart[dense + 1]; }
+	public int setAt(int pos) { return _elemSets[pos]; }
+
+	/**
+	 * 64-bit hash of the model's content: the universe size and every set's ID, cost and
+	 * original element IDs.  Equal content gives the same hash in every run and JVM, whatever
+	 * the order the sets and elements were added in, so it can key results stored on disk.
+	 * Computed once, in one pass over the sets.
+	 */
+
+	public long getContentHash() {
+		long h = _contentHash;
+		if (h == 0) {
+			h = mix(_numE);
+			for (int r = 0; r < _numS; r++) {
+				long elems = 0;
+				for (int p = _offsets[r]; p < _offsets[r + 1]; p++) {
+					elems += mix(_origIDs[_elements[p]]); //a sum, so the order of the elements does not matter
+				}
+				h = mix(h ^ mix(_setIDs[r]) ^ mix(Double.doubleToLongBits(_costs[r]) + 31 * elems)); //ranks are in ID order
+			}
+			h = h == 0 ? 1 : h; //0 means "not computed"
+			_contentHash = h;
+		}
+		return h;
+	}
+
+	private static long mix(long x) { //SplitMix64 finalizer
+		x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+		x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+		return x ^ (x >>> 31);
+	}
+}
@@ -0,0 +1,390 @@
+/**
+ *
+ */
+package model;
+import java.util.Arrays;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Preprocessing that shrinks an SCPModel before it is handed to a solver.  Reductions that are
+ * safe at any coverage level are always applied:
+ *  - duplicate sets: sets with the same elements are found by hashing their element lists, and
+ *    only the cheapest (lowest ID among equals) is kept
+ *  - dominated sets: a set whose elements all belong to another set of no higher cost.  The
+ *    candidates are only the sets holding the set's rarest element, and a 64-bit element
+ *    signature rules out most of them before the sorted rows are compared
+ * Neither changes the universe, so the coverage level stays the same.  When every element must
+ * be covered (alpha >= 1), two more reductions are repeated with the above until nothing changes:
+ *  - essential sets: the only set holding some element is in every cover, so it is fixed, and the
+ *    elements it covers leave the model
+ *  - identical columns: elements held by exactly the same sets are covered together, so only
+ *    one of them is kept
+ *
+ * Sets keep their IDs (and elements their original IDs) in the reduced model; see Reduction.
+ *
+ */
+
+public class ModelReducer {
+
+	public static Reduction reduce(SCPModel model, double alpha) {
+		return new ModelReducer(model.freeze(), alpha >= 1).run(model, alpha);
+	}
+
+	private final CompiledModel _cm;
+	private final boolean _full;       //every element must be covered
+
+	//working copy of the rows: set r holds _elems[_cm.start(r)] .. _elems[_cm.start(r) + _len[r] - 1], still sorted
+	private final int[] _elems;
+	private final int[] _len;
+	private final boolean[] _setAlive;
+	private final boolean[] _elemAlive;
+	private final int[] _freq;         //live sets holding each live element
+	private final long[] _sig;         //element signature of each set
+
+	private final boolean[] _fixed;
+	private int _numDuplicates, _numDominated, _numEmpty, _numCovered, _numMerged;
+
+	private ModelReducer(CompiledModel cm, boolean full) {
+		_cm = cm;
+		_full = full;
+		int m = cm.getNumS();
+		int n = cm.getNumE();
+
+		_elems = new int[cm.getNumEntries()];
+		_len = new int[m];
+		for (int r = 0; r < m; r++) {
+			_len[r] = cm.getSize(r);
+			for (int p = cm.start(r); p < cm.end(r); p++) {
+				_elems[p] = cm.element(p);
+			}
+		}
+		_setAlive = new boolean[m];
+		Arrays.fill(_setAlive, true);
+		_elemAlive = new boolean[n];
+		Arrays.fill(_elemAlive, true);
+		_freq = new int[n];
+		for (int e = 0; e < n; e++) {
+			_freq[e] = cm.getFrequency(e);
+		}
+		_sig = new long[m];
+		_fixed = new boolean[m];
+	}
+
+	private Reduction run(SCPModel model, double alpha) {
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			if (_full) {
+				changed |= mergeColumns();
+				changed |= fixEssential();
+			}
+			changed |= removeDuplicates();
+			changed |= removeDominated();
+			if (!_full) {
+				break; //only sets were removed, which cannot make another set removable
+			}
+		}
+		return build(model, alpha);
+	}
+
+	/**
+	 * Elements whose live sets are the same: all but the first (lowest dense ID) are dropped.
+	 */
+
+	private boolean mergeColumns() {
+		int n = _cm.getNumE();
+		long[] keys = new long[n];  //column hash in the high bits, element in the low 32, so sorting groups equal hashes
+		int count = 0;
+		for (int e = 0; e < n; e++) {
+			if (_elemAlive[e]) {
+				long h = 1;
+				for (int p = _cm.setsStart(e); p < _cm.setsEnd(e); p++) {
+					int r = _cm.setAt(p);
+					if (_setAlive[r]) {
+						h = h * 0x9E3779B97F4A7C15L + r + 1;
+					}
+				}
+				keys[count++] = (mix(h) & 0xFFFFFFFF00000000L) | e;
+			}
+		}
+		Arrays.sort(keys, 0, count);
+
+		boolean changed = false;
+		for (int i = 0; i < count; ) {
+			int j = i + 1;
+			while (j < count && (keys[j] >>> 32) == (keys[i] >>> 32)) {
+				j++;
+			}
+			for (int a = i + 1; a < j; a++) { //rare: compare with each element kept so far in the run
+				int ea = (int) keys[a];
+				for (int b = i; b < a; b++) {
+					int eb = (int) keys[b];
+					if (_elemAlive[eb] && sameColumn(ea, eb)) {
+						dropElement(ea);
+						_numMerged++;
+						changed = true;
+						break;
+					}
+				}
+			}
+			i = j;
+		}
+		return changed;
+	}
+
+	private boolean sameColumn(int e1, int e2) {
+		int p = _cm.setsStart(e1), q = _cm.setsStart(e2);
+		int pe = _cm.setsEnd(e1), qe = _cm.setsEnd(e2);
+		while (true) {
+			while (p < pe && !_setAlive[_cm.setAt(p)]) p++;
+			while (q < qe && !_setAlive[_cm.setAt(q)]) q++;
+			if (p == pe || q == qe) {
+				return p == pe && q == qe;
+			}
+			if (_cm.setAt(p++) != _cm.setAt(q++)) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Fix every set that is the only live set of some element; its elements are then covered.
+	 */
+
+	private boolean fixEssential() {
+		boolean changed = false;
+		for (int e = 0; e < _cm.getNumE(); e++) {
+			if (_elemAlive[e] && _freq[e] == 1) {
+				for (int p = _cm.setsStart(e); p < _cm.setsEnd(e); p++) {
+					int r = _cm.setAt(p);
+					if (_setAlive[r]) {
+						fixSet(r);
+						changed = true;
+						break;
+					}
+				}
+			}
+		}
+
+		if (changed) { //sets whose elements were all covered by the fixed sets have nothing left to do
+			for (int r = 0; r < _len.length; r++) {
+				if (_setAlive[r] && _len[r] == 0) {
+					_setAlive[r] = false;
+					_numEmpty++;
+				}
+			}
+		}
+		return changed;
+	}
+
+	private void fixSet(int r) {
+		_fixed[r] = true;
+		killSet(r);
+		int s = _cm.start(r);
+		for (int p = s; p < s + _len[r]; p++) {
+			int e = _elems[p];
+			if (_elemAlive[e]) {
+				dropElement(e);
+				_numCovered++;
+			}
+		}
+	}
+
+	/**
+	 * Sets with identical rows: hash every live row, sort by (hash, cost, rank) and keep the first
+	 * of each group of equal rows.
+	 */
+
+	private boolean removeDuplicates() {
+		int m = _len.length;
+		Integer[] order = new Integer[m];
+		long[] hash = new long[m];
+		int count = 0;
+		for (int r = 0; r < m; r++) {
+			if (_setAlive[r]) {
+				long h = _len[r];
+				int s = _cm.start(r);
+				for (int p = s; p < s + _len[r]; p++) {
+					h = h * 0x9E3779B97F4A7C15L + _elems[p] + 1;
+				}
+				hash[r] = mix(h);
+				order[count++] = r;
+			}
+		}
+		Arrays.sort(order, 0, count, (a, b) -> {
+			int c = Long.compare(hash[a], hash[b]);
+			if (c == 0) c = Double.compare(_cm.getCost(a), _cm.getCost(b));
+			return c != 0 ? c : Integer.compare(a, b);
+		});
+
+		boolean changed = false;
+		for (int i = 0; i < count; ) {
+			int j = i + 1;
+			while (j < count && hash[order[j]] == hash[order[i]]) {
+				j++;
+			}
+			for (int a = i + 1; a < j; a++) {
+				for (int b = i; b < a; b++) {
+					if (_setAlive[order[b]] && sameRow(order[a], order[b])) {
+						killSet(order[a]);
+						_numDuplicates++;
+						changed = true;
+						break;
+					}
+				}
+			}
+			i = j;
+		}
+		return changed;
+	}
+
+	private boolean sameRow(int r1, int r2) {
+		if (_len[r1] != _len[r2]) {
+			return false;
+		}
+		int s1 = _cm.start(r1), s2 = _cm.start(r2);
+		for (int i = 0; i < _len[r1]; i++) {
+			if (_elems[s1 + i] != _elems[s2 + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Remove every set a whose row is contained in the row of a live set b that beats it: cheaper,
+	 * or as cheap and larger, or as cheap, as large and lower in ID order.  That order is strict,
+	 * so of two sets that contain each other only one goes, and whatever removes b also beats a.
+	 */
+
+	private boolean removeDominated() {
+		int m = _len.length;
+		for (int r = 0; r < m; r++) {
+			if (_setAlive[r]) {
+				long sig = 0;
+				int s = _cm.start(r);
+				for (int p = s; p < s + _len[r]; p++) {
+					sig |= 1L << (mix(_elems[p]) & 63);
+				}
+				_sig[r] = sig;
+			}
+		}
+
+		boolean changed = false;
+		for (int a = 0; a < m; a++) {
+			if (!_setAlive[a] || _len[a] == 0) {
+				continue;
+			}
+
+			int rare = -1; //every set dominating a holds a's rarest element, so only those are candidates
+			int s = _cm.start(a);
+			for (int p = s; p < s + _len[a]; p++) {
+				if (rare < 0 || _freq[_elems[p]] < _freq[rare]) {
+					rare = _elems[p];
+				}
+			}
+
+			for (int p = _cm.setsStart(rare); p < _cm.setsEnd(rare); p++) {
+				int b = _cm.setAt(p);
+				if (b != a && _setAlive[b] && _len[b] >= _len[a] && (_sig[a] & ~_sig[b]) == 0
+						&& beats(b, a) && subsetOf(a, b)) {
+					killSet(a);
+					_numDominated++;
+					changed = true;
+					break;
+				}
+			}
+		}
+		return changed;
+	}
+
+	private boolean beats(int b, int a) {
+		double cb = _cm.getCost(b), ca = _cm.getCost(a);
+		if (cb != ca) {
+			return cb < ca;
+		}
+		return _len[b] != _len[a] ? _len[b] > _len[a] : b < a;
+	}
+
+	private boolean subsetOf(int a, int b) { //both rows are sorted
+		int p = _cm.start(a), pe = p + _len[a];
+		int q = _cm.start(b), qe = q + _len[b];
+		while (p < pe) {
+			while (q < qe && _elems[q] < _elems[p]) {
+				q++;
+			}
+			if (q == qe || _elems[q] != _elems[p]) {
+				return false;
+			}
+			p++;
+			q++;
+		}
+		return true;
+	}
+
+	private void killSet(int r) {
+		_setAlive[r] = false;
+		int s = _cm.start(r);
+		for (int p = s; p < s + _len[r]; p++) {
+			_freq[_elems[p]]--;
+		}
+	}
+
+	private void dropElement(int e) { //take e out of every live row
+		_elemAlive[e] = false;
+		for (int p = _cm.setsStart(e); p < _cm.setsEnd(e); p++) {
+			int r = _cm.setAt(p);
+			if (_setAlive[r]) {
+				int s = _cm.start(r);
+				int i = Arrays.binarySearch(_elems, s, s + _len[r], e);
+				System.arraycopy(_elems, i + 1, _elems, i, s + _len[r] - i - 1);
+				_len[r]--;
+			}
+		}
+		_freq[e] = 0;
+	}
+
+	private Reduction build(SCPModel model, double alpha) {
+		SCPModel reduced = new SCPModel();
+		int m = _len.length;
+		int numFixed = 0;
+		double fixedCost = 0;
+		int[] orig = new int[16];
+		for (int r = 0; r < m; r++) { //rank order, so the reduced model numbers its elements in the same order
+			if (_fixed[r]) {
+				numFixed++;
+				fixedCost += _cm.getCost(r);
+			}
+			else if (_setAlive[r]) {
+				if (orig.length < _len[r]) {
+					orig = new int[Math.max(_len[r], orig.length * 2)];
+				}
+				int s = _cm.start(r);
+				for (int i = 0; i < _len[r]; i++) {
+					orig[i] = _cm.origID(_elems[s + i]);
+				}
+				reduced.addSetToCover(_cm.getSetID(r), _cm.getCost(r), orig, 0, _len[r]);
+			}
+		}
+
+		int[] fixedIDs = new int[numFixed];
+		int k = 0;
+		for (int r = 0; r < m; r++) {
+			if (_fixed[r]) {
+				fixedIDs[k++] = _cm.getSetID(r);
+			}
+		}
+
+		//a full cover of the reduced model plus the fixed sets is a full cover of the original
+		double newAlpha = _full ? 1.0 : alpha;
+		return new Reduction(model, reduced, newAlpha, fixedIDs, fixedCost,
+				_numDuplicates, _numDominated, _numEmpty, _numCovered, _numMerged);
+	}
+
+	private static long mix(long h) { //finalizer of SplitMix64, spreads the bits of a running hash
+		h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+		h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+		return h ^ (h >>> 31);
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ *
+ */
+package model;
+import java.util.Collection;
+import java.util.TreeSet;
+import util.ElementSet;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Result of ModelReducer.reduce(): the reduced model, the sets that were fixed into every
+ * solution on the way, and what was removed.  Sets keep their IDs in the reduced model, so a
+ * solution of it maps back to the original model by adding the fixed sets (toOriginal()).
+ *
+ */
+
+public class Reduction {
+
+	private final SCPModel _original;
+	private final SCPModel _reduced;
+	private final double _alpha;        //coverage level to ask of a solver on the reduced model
+	private final int[] _fixedIDs;      //essential sets, in ID order
+	private final double _fixedCost;
+
+	private final int _numDuplicates;   //sets with the same elements as a cheaper (or lower ID) set
+	private final int _numDominated;    //sets whose elements all belong to a set that is no more expensive
+	private final int _numEmpty;        //sets left with nothing to cover once the fixed sets were taken
+	private final int _numCovered;      //elements covered by the fixed sets
+	private final int _numMerged;       //elements dropped because another element has exactly the same sets
+
+	Reduction(SCPModel original, SCPModel reduced, double alpha, int[] fixedIDs, double fixedCost,
+			int numDuplicates, int numDominated, int numEmpty, int numCovered, int numMerged) {
+		_original = original;
+		_reduced = reduced;
+		_alpha = alpha;
+		_fixedIDs = fixedIDs;
+		_fixedCost = fixedCost;
+		_numDuplicates = numDuplicates;
+		_numDominated = numDominated;
+		_numEmpty = numEmpty;
+		_numCovered = numCovered;
+		_numMerged = numMerged;
+	}
+
+	public SCPModel getOriginal() { return _original; }
+	public SCPModel getModel() { return _reduced; }
+	public double getAlpha() { return _alpha; }
+	public int[] getFixedSetIDs() { return _fixedIDs.clone(); }
+	public double getFixedCost() { return _fixedCost; }
+	public int getNumDuplicates() { return _numDuplicates; }
+	public int getNumDominated() { return _numDominated; }
+	public int getNumEmpty() { return _numEmpty; }
+	public int getNumCovered() { return _numCovered; }
+	public int getNumMerged() { return _numMerged; }
+
+	/**
+	 * Set IDs of the original-model solution made of a solution of the reduced model plus the
+	 * fixed sets.
+	 */
+
+	public TreeSet<Integer> toOriginal(Collection<ElementSet> reducedSoln) {
+		TreeSet<Integer> ids = new TreeSet<Integer>();
+		for (int id : _fixedIDs) {
+			ids.add(id);
+		}
+		for (ElementSet es : reducedSoln) {
+			ids.add(es.getSetID()); //IDs are the same in both models
+		}
+		return ids;
+	}
+
+	/**
+	 * Total cost of a reduced-model solution once mapped back (its own cost plus the fixed sets').
+	 */
+
+	public double toOriginalCost(Collection<ElementSet> reducedSoln) {
+		double cost = _fixedCost;
+		for (ElementSet es : reducedSoln) {
+			cost += es.getCost();
+		}
+		return cost;
+	}
+
+	public String toString() { //report in the style of SCPModel.toString()
+		StringBuilder sb = new StringBuilder();
+		sb.append("\nModel reduction:\n---------------------\n");
+		sb.append("Sets (m): " + _original.getNumS() + " -> " + _reduced.getNumS() + "\n");
+		sb.append("Elements (n): " + _original.getNumE() + " -> " + _reduced.getNumE() + "\n");
+		sb.append("  fixed (essential) sets: " + _fixedIDs.length + String.format("   cost: %.2f", _fixedCost) + "\n");
+		sb.append("  duplicate sets removed: " + _numDuplicates + "\n");
+		sb.append("  dominated sets removed: " + _numDominated + "\n");
+		sb.append("  emptied sets removed:   " + _numEmpty + "\n");
+		sb.append("  elements covered by fixed sets: " + _numCovered + "\n");
+		sb.append("  elements merged (identical columns): " + _numMerged + "\n");
+		sb.append(String.format("Coverage level for the reduced model: %.2f%%\n", 100*_alpha));
+		return sb.toString();
+	}
+}
@@ -3,6 +3,7 @@
  */
 package model;
 import java.util.TreeSet;
+import util.CSRStorage;
 import util.ElementSet;
 import java.util.List;
 import java.util.Collection;
@@ -12,6 +13,13 @@ import java.util.Collection;
  *
  * Represents the weighted CSP problem; implemented as a sorted set of ElementSet.
  * 
+ * The sets' IDs, costs and elements are stored once in a CSRStorage (primitive arrays,
+ * elements renumbered to dense IDs 0..n-1); the ElementSets in _model are views of its rows.
+ * 
+ * Sets can be removed and repriced after the model is built.  The universe is every element
+ * that has been added: removing a set does not remove its elements, so an element no remaining
+ * set holds simply cannot be covered any more (and counts against the coverage).
+ * 
  */
 
 public class SCPModel {
@@ -23,23 +31,85 @@ public class SCPModel {
 	 */
 	
 	private TreeSet<ElementSet> _model;
+	private CSRStorage _storage; //backing arrays shared by all the sets of the model
+	private volatile CompiledModel _compiled; //result of freeze(), dropped whenever the model changes
+	private int _modCount; //number of changes so far, so solvers holding state can tell the model changed
 	
 	public SCPModel() {
 		_model = new TreeSet<ElementSet>(); //constructor
+		_storage = new CSRStorage();
+	}
+	
+	public SCPModel(CSRStorage storage) { //model over an already filled storage (snapshots, bulk loaders)
+		_model = new TreeSet<ElementSet>();
+		_storage = storage;
+		for (int i = 0; i < storage.getNumS(); i++) {
+			_model.add(new ElementSet(storage, i));
+		}
 	}
 	
 	public void addSetToCover (int ID, double cost, Collection<Integer> elements) { //method name from TestSCPSoln
-		ElementSet es = new ElementSet (ID, cost, elements); //add set to model!
-		_model.add(es);
+		int[] arr = ElementSet.toArray(elements);
+		addSetToCover(ID, cost, arr, 0, arr.length);
+	}
+	
+	public void addSetToCover (int ID, double cost, int[] elements, int from, int to) { //same, for original element IDs elements[from..to) without boxing
+		int index = _storage.addSet(ID, cost, elements, from, to);
+		if (index >= 0) { //a repeated set ID is ignored, as TreeSet.add did
+			_model.add(new ElementSet(_storage, index)); //add set to model!
+			_compiled = null;
+			_modCount++;
+		}
+	}
+	
+	public boolean removeSet (int ID) { //false if there is no set with this ID
+		int index = _storage.indexOf(ID);
+		if (index < 0) {
+			return false;
+		}
+		_model.remove(new ElementSet(_storage, index)); //TreeSet finds it by set ID
+		_storage.removeSet(index);
+		_compiled = null;
+		_modCount++;
+		return true;
+	}
+	
+	public boolean updateCost (int ID, double cost) { //false if there is no set with this ID
+		int index = _storage.indexOf(ID);
+		if (index < 0) {
+			return false;
+		}
+		_storage.setCost(index, cost); //the ElementSet views read the cost from the storage
+		_compiled = null;
+		_modCount++;
+		return true;
 	}
 	
-	public int getNumE () { //get number of elements in model --TestSCPSoln counts UNIQUE only
-		TreeSet<Integer> numE = new TreeSet<Integer> (); //since elementsToCover (from ElementSet.java) is a treeset
-			for (ElementSet es : _model) {
-				numE.addAll(es.getESet()); //we merge all the elements into 1 big treeset (removes duplicates and orders the elements)
+	public int getModCount() { return _modCount; }
+	
+	/**
+	 * Compile the model into its immutable, pre-indexed form (universe size, element dictionary,
+	 * frequencies, set sizes, element -> sets index).  The result is cached until the model is
+	 * changed, so every solver on the same model shares one copy; it is safe to call from many
+	 * threads as long as nobody is adding sets at the same time.
+	 */
+	
+	public CompiledModel freeze() {
+		CompiledModel c = _compiled;
+		if (c == null) {
+			synchronized (this) {
+				c = _compiled;
+				if (c == null) {
+					c = new CompiledModel(this);
+					_compiled = c;
+				}
 			}
-		
-			return numE.size();
+		}
+		return c;
+	}
+	
+	public int getNumE () { //get number of elements in model --TestSCPSoln counts UNIQUE only (including those of removed sets)
+		return _storage.getNumE(); //every distinct element got exactly one dense ID
 	}
 	
 	public int getNumS () { //get number of sets in model
@@ -47,11 +117,11 @@ public class SCPModel {
 		return _model.size();
 	}
 	
-	public TreeSet <Integer> getAllE () { //get all elements of model
+	public TreeSet <Integer> getAllE () { //get all elements of model (original IDs)
 		TreeSet <Integer > allE = new TreeSet<Integer> ();
 		
-		for (ElementSet es : _model) {
-			allE.addAll(es.getESet());
+		for (int d = 0; d < _storage.getNumE(); d++) {
+			allE.add(_storage.origID(d));
 		}
 		
 		return allE;
@@ -61,6 +131,10 @@ public class SCPModel {
 		return _model;
 	}
 	
+	public CSRStorage getStorage() { //primitive view used by the solvers (dense element IDs)
+		return _storage;
+	}
+	
 	public String toString () { //based on TestSCPSoln.java
 	
 	/*
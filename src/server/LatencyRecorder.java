@@ -0,0 +1,47 @@
+/**
+ *
+ */
+package server;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Request latencies (microseconds) of the last WINDOW requests, in a ring written without
+ * locks; percentiles are computed on demand from a sorted copy.
+ *
+ */
+
+final class LatencyRecorder {
+
+	private static final int WINDOW = 1 << 14;
+
+	private final AtomicLongArray _ring = new AtomicLongArray(WINDOW);
+	private final AtomicLong _count = new AtomicLong();
+
+	void record(long micros) {
+		long i = _count.getAndIncrement();
+		_ring.set((int)(i & (WINDOW - 1)), micros);
+	}
+
+	long getCount() { return _count.get(); }
+
+	/**
+	 * p50, p90, p99 and max over the window (zeros before the first request).
+	 */
+
+	long[] percentiles() {
+		int n = (int)Math.min(_count.get(), WINDOW);
+		long[] v = new long[n];
+		for (int i = 0; i < n; i++) {
+			v[i] = _ring.get(i);
+		}
+		Arrays.sort(v);
+		if (n == 0) {
+			return new long[4];
+		}
+		return new long[] {v[(n - 1) / 2], v[(int)((n - 1) * 0.9)], v[(int)((n - 1) * 0.99)], v[n - 1]};
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ *
+ */
+package server;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import model.SCPModel;
+import solver.GreedySolver;
+import solver.SolutionCache;
+import solver.Trajectory;
+import util.ElementSet;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Groups concurrent solve requests for the same model and solver, so that one solve answers
+ * them all (group commit).  The first request of a group leads it: it waits until the previous
+ * group of that model and solver is done, closes its group and solves once at the highest
+ * alpha asked for, through the SolutionCache.  Every request of the group, whatever its alpha,
+ * then reads its result off the one trajectory.  Requests that arrive while a group is solving
+ * queue up in the next one, so the busier a model gets, the bigger its groups become.  The lane
+ * (lock) of a model and solver only exists while groups use it, so keys of deleted or replaced
+ * models do not pile up.
+ *
+ */
+
+final class SolveBatcher {
+
+	private final SolutionCache _cache;
+	private final ConcurrentHashMap<String, Group> _open = new ConcurrentHashMap<String, Group>();
+	private final ConcurrentHashMap<String, Lane> _lanes = new ConcurrentHashMap<String, Lane>();
+	private final AtomicLong _groups = new AtomicLong();
+	private final AtomicLong _solves = new AtomicLong(); //groups that were not answered by the cache
+
+	SolveBatcher(SolutionCache cache) {
+		_cache = cache;
+	}
+
+	long getGroups() { return _groups.get(); }
+	long getSolves() { return _solves.get(); }
+
+	static final class Result {
+		double _objFn;
+		double _coverage;
+		TreeSet<ElementSet> _sets;
+		int _groupSize;   //requests answered by the same solve
+		boolean _cached;  //the solve itself came from the cache
+	}
+
+	private static final class Lane { //one group per model and solver at a time
+		final ReentrantLock _lock = new ReentrantLock();
+		int _users; //leaders holding or waiting for the lock; changed only inside _lanes.compute()
+	}
+
+	private static final class Group {
+		final List<Double> _alphas = new ArrayList<Double>();
+		final List<CompletableFuture<Result>> _results = new ArrayList<CompletableFuture<Result>>();
+		boolean _closed;
+	}
+
+	/**
+	 * Result for one request.  key names the model version and solver variant; solver creates
+	 * a fresh solver (each group gets its own).
+	 */
+
+	Result solve(String key, SCPModel model, Supplier<GreedySolver> solver, double alpha) throws InterruptedException {
+		CompletableFuture<Result> result = new CompletableFuture<Result>();
+		Group g;
+		boolean leader;
+		for (;;) {
+			g = _open.computeIfAbsent(key, k -> new Group());
+			synchronized (g) {
+				if (g._closed) {
+					continue; //closed between the lookup and the lock; take the next one
+				}
+				leader = g._alphas.isEmpty();
+				g._alphas.add(alpha);
+				g._results.add(result);
+				break;
+			}
+		}
+
+		if (leader) {
+			run(key, g, model, solver);
+		}
+		try {
+			return result.get();
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+		}
+	}
+
+	private void run(String key, Group g, SCPModel model, Supplier<GreedySolver> solver) {
+		Lane lane = _lanes.compute(key, (k, l) -> {
+			l = l == null ? new Lane() : l;
+			l._users++;
+			return l;
+		});
+		lane._lock.lock(); //one group per model and solver at a time; the others keep filling up meanwhile
+		try {
+			synchronized (g) {
+				g._closed = true;
+				_open.remove(key, g);
+			}
+			_groups.incrementAndGet();
+
+			double maxAlpha = 0;
+			for (double a : g._alphas) {
+				maxAlpha = Math.max(maxAlpha, a);
+			}
+			try {
+				GreedySolver s = solver.get();
+				s.setModel(model);
+				s.setMinCoverage(maxAlpha);
+				boolean cached = _cache.solve(s);
+				if (!cached) {
+					_solves.incrementAndGet();
+				}
+				Trajectory t = s.getTrajectory(); //answers every alpha up to maxAlpha
+				for (int i = 0; i < g._alphas.size(); i++) {
+					double a = g._alphas.get(i);
+					Result r = new Result();
+					r._objFn = t.getObjFn(a);
+					r._coverage = t.getCoverage(a);
+					r._sets = t.getSolnSets(a);
+					r._groupSize = g._alphas.size();
+					r._cached = cached;
+					g._results.get(i).complete(r);
+				}
+			}
+			catch (Throwable e) { //Errors too: the followers would otherwise wait forever
+				for (CompletableFuture<Result> f : g._results) {
+					f.completeExceptionally(e);
+				}
+			}
+		}
+		finally {
+			lane._lock.unlock();
+			_lanes.compute(key, (k, l) -> --l._users == 0 ? null : l); //drop the lane once no group needs it
+		}
+	}
+}
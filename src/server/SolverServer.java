@@ -0,0 +1,356 @@
+/**
+ *
+ */
+package server;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.SCPLoader;
+import model.SCPModel;
+import solver.ChvatalSolver;
+import solver.GreedyCostSolver;
+import solver.GreedyCoverageSolver;
+import solver.GreedySolver;
+import solver.SolutionCache;
+import util.ElementSet;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Resident solver service over HTTP on localhost, so repeated solves skip JVM startup, JIT
+ * warmup and model loading.  Models are loaded once and kept (compiled) by ID; every request
+ * runs on its own virtual thread when the JVM has them (a platform thread otherwise), concurrent
+ * requests for the same model and solver are answered by one solve (SolveBatcher), and repeats
+ * come from a SolutionCache.  Endpoints (JSON responses):
+ *
+ *   PUT    /models/{id}             body: an instance file (either format), or ?path=file on this machine
+ *   GET    /models                  loaded models
+ *   DELETE /models/{id}
+ *   GET    /solve?model=id&solver=chvatal&alpha=0.9[&sets=false]
+ *                                   solver is coverage, cost or chvatal (indexed modes, same picks as the scans)
+ *   GET    /stats                   requests, groups, cache and latency percentiles (microseconds)
+ *
+ * Every response carries its latency, measured from the request's arrival, in X-Latency-Micros.
+ *
+ *   java server.SolverServer [--port 8035] [--cache-mb 256] [--cache-dir dir] [--warmup] [id=file ...]
+ *
+ */
+
+public class SolverServer implements AutoCloseable {
+
+	private final HttpServer _http;
+	private final ExecutorService _executor;
+	private final SolutionCache _cache;
+	private final SolveBatcher _batcher;
+	private final LatencyRecorder _latency = new LatencyRecorder();
+	private final ConcurrentHashMap<String, Loaded> _models = new ConcurrentHashMap<String, Loaded>();
+	private final AtomicLong _versions = new AtomicLong(); //a re-uploaded ID never shares groups with the old model
+	private final SCPLoader _loader = new SCPLoader();
+
+	private static final class Loaded {
+		final SCPModel _model;
+		final long _version;
+		final long _loadMillis;
+
+		Loaded(SCPModel model, long version, long loadMillis) {
+			_model = model;
+			_version = version;
+			_loadMillis = loadMillis;
+		}
+	}
+
+	public SolverServer(int port, SolutionCache cache) throws IOException {
+		_cache = cache;
+		_batcher = new SolveBatcher(cache);
+		_executor = requestExecutor();
+		_http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		_http.setExecutor(_executor);
+		_http.createContext("/models", this::models);
+		_http.createContext("/solve", this::solve);
+		_http.createContext("/stats", this::stats);
+	}
+
+	private static ExecutorService requestExecutor() { //a virtual thread per request when available
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException e) { //a platform thread per request then: requests block while their group solves
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	public void start() { _http.start(); }
+	public int getPort() { return _http.getAddress().getPort(); }
+
+	@Override
+	public void close() {
+		_http.stop(0);
+		_executor.shutdown();
+	}
+
+	/**
+	 * Load a model under an ID (replacing any model of that ID) and compile it, so the first
+	 * solve does not pay for it.
+	 */
+
+	public SCPModel load(String id, File file) throws IOException {
+		long start = System.currentTimeMillis();
+		SCPModel model = _loader.load(file);
+		model.freeze();
+		_models.put(id, new Loaded(model, _versions.incrementAndGet(), System.currentTimeMillis() - start));
+		return model;
+	}
+
+	public static final String[] SOLVERS = {"coverage", "cost", "chvatal"};
+
+	public static GreedySolver createSolver(String name) { //null for an unknown name
+		switch (name.toLowerCase()) {
+			case "coverage":
+				return new GreedyCoverageSolver(GreedyCoverageSolver.Mode.BUCKET);
+			case "cost":
+				return new GreedyCostSolver(GreedyCostSolver.Mode.CURSOR);
+			case "chvatal":
+				return new ChvatalSolver(ChvatalSolver.Mode.LAZY);
+			default:
+				return null;
+		}
+	}
+
+	private void models(HttpExchange ex) throws IOException {
+		long start = System.nanoTime();
+		String path = ex.getRequestURI().getPath();
+		String id = path.length() > "/models/".length() ? path.substring("/models/".length()) : null;
+		String method = ex.getRequestMethod();
+
+		if (id == null && method.equals("GET")) {
+			StringBuilder sb = new StringBuilder("[");
+			for (Map.Entry<String, Loaded> e : _models.entrySet()) {
+				if (sb.length() > 1) {
+					sb.append(',');
+				}
+				sb.append(modelJson(e.getKey(), e.getValue()));
+			}
+			reply(ex, 200, sb.append(']').toString(), start);
+		}
+		else if (id != null && method.equals("PUT")) {
+			String file = query(ex).get("path");
+			Path tmp = null;
+			try {
+				if (file == null) { //the instance is the request body
+					tmp = Files.createTempFile("scp", ".txt");
+					try (InputStream in = ex.getRequestBody()) {
+						Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+					}
+				}
+				load(id, tmp != null ? tmp.toFile() : new File(file));
+				reply(ex, 200, modelJson(id, _models.get(id)), start);
+			}
+			catch (IOException | RuntimeException e) {
+				reply(ex, 400, error(e.toString()), start);
+			}
+			finally {
+				if (tmp != null) {
+					Files.deleteIfExists(tmp);
+				}
+			}
+		}
+		else if (id != null && method.equals("DELETE")) {
+			reply(ex, _models.remove(id) != null ? 200 : 404, "{\"removed\":" + json(id) + "}", start);
+		}
+		else {
+			reply(ex, 405, error("use GET /models, PUT or DELETE /models/{id}"), start);
+		}
+	}
+
+	private void solve(HttpExchange ex) throws IOException {
+		long start = System.nanoTime();
+		Map<String, String> q = query(ex);
+		String id = q.get("model");
+		String name = q.getOrDefault("solver", "chvatal");
+		Loaded m = id == null ? null : _models.get(id);
+		if (m == null) {
+			reply(ex, 404, error("no model " + id), start);
+			return;
+		}
+		GreedySolver probe = createSolver(name);
+		if (probe == null) {
+			reply(ex, 400, error("unknown solver " + name + " (coverage, cost or chvatal)"), start);
+			return;
+		}
+
+		try {
+			double alpha = Double.parseDouble(q.getOrDefault("alpha", "1"));
+			Supplier<GreedySolver> solver = () -> createSolver(name);
+			SolveBatcher.Result r = _batcher.solve(m._version + "/" + probe.getVariant(), m._model, solver, alpha);
+
+			StringBuilder sb = new StringBuilder();
+			sb.append("{\"model\":").append(json(id)).append(",\"solver\":").append(json(probe.getName()))
+				.append(",\"alpha\":").append(jsonNum(alpha)).append(",\"objective\":").append(jsonNum(r._objFn))
+				.append(",\"coverage\":").append(jsonNum(r._coverage)).append(",\"numSets\":").append(r._sets.size())
+				.append(",\"groupSize\":").append(r._groupSize).append(",\"cached\":").append(r._cached);
+			if (!"false".equals(q.get("sets"))) {
+				sb.append(",\"sets\":[");
+				boolean first = true;
+				for (ElementSet es : r._sets) {
+					sb.append(first ? "" : ",").append(es.getSetID());
+					first = false;
+				}
+				sb.append(']');
+			}
+			sb.append(",\"latencyMicros\":").append((System.nanoTime() - start) / 1000).append('}');
+			reply(ex, 200, sb.toString(), start);
+		}
+		catch (NumberFormatException e) {
+			reply(ex, 400, error("bad alpha " + q.get("alpha")), start);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			reply(ex, 503, error("interrupted"), start);
+		}
+		catch (RuntimeException e) {
+			reply(ex, 500, error(e.toString()), start);
+		}
+	}
+
+	private void stats(HttpExchange ex) throws IOException {
+		long start = System.nanoTime();
+		long[] p = _latency.percentiles();
+		String s = "{\"requests\":" + _latency.getCount() + ",\"models\":" + _models.size() + ",\"groups\":" + _batcher.getGroups()
+				+ ",\"solves\":" + _batcher.getSolves() + ",\"cacheHits\":" + _cache.getHits() + ",\"cacheMisses\":" + _cache.getMisses()
+				+ ",\"latencyMicros\":{\"p50\":" + p[0] + ",\"p90\":" + p[1] + ",\"p99\":" + p[2] + ",\"max\":" + p[3] + "}}";
+		reply(ex, 200, s, start);
+	}
+
+	private void reply(HttpExchange ex, int status, String body, long start) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		long micros = (System.nanoTime() - start) / 1000;
+		_latency.record(micros);
+		ex.getResponseHeaders().set("Content-Type", "application/json");
+		ex.getResponseHeaders().set("X-Latency-Micros", Long.toString(micros));
+		ex.sendResponseHeaders(status, bytes.length);
+		try (OutputStream os = ex.getResponseBody()) {
+			os.write(bytes);
+		}
+	}
+
+	private static Map<String, String> query(HttpExchange ex) {
+		Map<String, String> q = new HashMap<String, String>();
+		String raw = ex.getRequestURI().getRawQuery();
+		if (raw != null) {
+			for (String kv : raw.split("&")) {
+				int eq = kv.indexOf('=');
+				if (eq > 0) {
+					q.put(URLDecoder.decode(kv.substring(0, eq), StandardCharsets.UTF_8), URLDecoder.decode(kv.substring(eq + 1), StandardCharsets.UTF_8));
+				}
+			}
+		}
+		return q;
+	}
+
+	private static String modelJson(String id, Loaded m) {
+		return "{\"id\":" + json(id) + ",\"n\":" + m._model.getNumE() + ",\"m\":" + m._model.getNumS() + ",\"loadMillis\":" + m._loadMillis + "}";
+	}
+
+	private static String error(String message) {
+		return "{\"error\":" + json(message) + "}";
+	}
+
+	private static String jsonNum(double v) { //JSON has no NaN or infinity
+		return Double.isNaN(v) || Double.isInfinite(v) ? "null" : Double.toString(v);
+	}
+
+	private static String json(String s) {
+		StringBuilder sb = new StringBuilder("\"");
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			}
+			else if (c < 0x20) {
+				sb.append(String.format("\\u%04x", (int) c));
+			}
+			else {
+				sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = 8035;
+		long cacheMB = 256;
+		String cacheDir = null;
+		boolean warmup = false;
+		Map<String, String> preload = new HashMap<String, String>();
+
+		for (int i = 0; i < args.length; i++) {
+			String a = args[i];
+			if (a.equals("--warmup")) {
+				warmup = true;
+			}
+			else if (a.startsWith("--") && i + 1 < args.length) {
+				String v = args[++i];
+				switch (a) {
+					case "--port":
+						port = Integer.parseInt(v);
+						break;
+					case "--cache-mb":
+						cacheMB = Long.parseLong(v);
+						break;
+					case "--cache-dir":
+						cacheDir = v;
+						break;
+					default:
+						usage();
+						return;
+				}
+			}
+			else if (a.indexOf('=') > 0) {
+				preload.put(a.substring(0, a.indexOf('=')), a.substring(a.indexOf('=') + 1));
+			}
+			else {
+				usage();
+				return;
+			}
+		}
+
+		long maxBytes = cacheMB << 20;
+		SolutionCache cache = cacheDir == null ? new SolutionCache(maxBytes) : new SolutionCache(maxBytes, Path.of(cacheDir));
+		SolverServer server = new SolverServer(port, cache);
+		for (Map.Entry<String, String> e : preload.entrySet()) {
+			SCPModel m = server.load(e.getKey(), new File(e.getValue()));
+			System.err.println("loaded " + e.getKey() + ": n=" + m.getNumE() + " m=" + m.getNumS());
+			if (warmup) { //JIT-compile the solvers before the first request; bypasses the cache
+				for (String name : SOLVERS) {
+					GreedySolver s = createSolver(name);
+					s.setModel(m);
+					s.setMinCoverage(1);
+					s.solve();
+				}
+			}
+		}
+		server.start();
+		System.err.println("listening on http://localhost:" + server.getPort() + "/");
+	}
+
+	private static void usage() {
+		System.err.println("usage: server.SolverServer [--port 8035] [--cache-mb 256] [--cache-dir dir] [--warmup] [id=file ...]");
+	}
+}
@@ -0,0 +1,384 @@
+/**
+ *
+ */
+package solver;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import model.CompiledModel;
+import util.ElementSet;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Randomized multi-start greedy with a time limit.  Until the deadline (or cancel()), one worker
+ * per thread keeps running perturbed greedy passes on the compiled model: Chvatal's rule on
+ * costs multiplied by random noise, and now and then the coverage rule on noisy counts, with
+ * random tie-breaks.  Every finished pass is offered to a shared best slot (an AtomicReference,
+ * replaced by compare-and-set when a pass covers more, or as much for less), and when time is up
+ * solve() takes the best solution found.  The very first pass is plain Chvatal, so the result
+ * is never worse than ChvatalSolver's.
+ *
+ * The search runs in initSelection(); nextBestSet() then hands the best solution's sets to
+ * solve() in the order they were picked, so printing, coverage and trajectories work as for the
+ * other solvers.  solve() only returns once a first pass has finished, unless it is cancelled
+ * (or every worker failed, which it throws as an IllegalStateException), and only after its
+ * workers have ended; each solve() has its own search state, which the workers hold on to.
+ *
+ * With a gap tolerance set, solve() also computes a LagrangianBound while the workers search
+ * (after the first pass, whose cost guides its steps) and stops as soon as the best solution is
+ * within the tolerance of it; getLowerBound() and getGap() then report it.  The passes started
+ * after the bound skip the sets its reduced costs rule out of any cheaper solution.
+ *
+ */
+
+public class AnytimeSolver extends GreedySolver {
+
+	private long _timeLimit = 1000;    //ms
+	private int _threads = Runtime.getRuntime().availableProcessors();
+	private double _noise = 0.2;       //costs are scaled by a factor in [1 - noise, 1 + noise]
+	private long _seed = 1;
+	private double _gapTolerance = -1; //below 0: no lower bound
+
+	private volatile Search _search;   //state of the last (or current) solve(), null before the first
+
+	private int[] _picks;              //best solution, served by nextBestSet()
+	private int _next;
+
+	public AnytimeSolver() {
+		_name = "Anytime"; //name changes for each class, set name for the solver here (shown when program is run)
+	}
+
+	public void setTimeLimit(long ms) { _timeLimit = ms; }
+	public void setThreads(int threads) { _threads = Math.max(1, threads); }
+	public void setNoise(double noise) { _noise = noise; }
+	public void setSeed(long seed) { _seed = seed; }
+	public void setGapTolerance(double gap) { _gapTolerance = gap; } //e.g. 0.01: stop within 1% of the lower bound (0: only when optimal)
+	public long getTimeLimit() { return _timeLimit; }
+	public int getNumRuns() { Search s = _search; return s == null ? 0 : s._numRuns.get(); } //greedy passes finished by the last solve()
+	public double getGapTolerance() { return _gapTolerance; }
+	public int getNumPruned() { Search s = _search; return s == null ? 0 : s._numPruned; } //sets the bound ruled out in the last solve()
+
+	@Override
+	public String getVariant() { //every setting that changes the result
+		return _name + " timeLimit=" + _timeLimit + " threads=" + _threads + " noise=" + _noise + " seed=" + _seed + " gap=" + _gapTolerance;
+	}
+
+	@Override
+	protected boolean picksIndependentOfAlpha() { //passes stop, and are compared, at the coverage target
+		return false;
+	}
+
+	@Override
+	protected boolean picksStopOnCancel() { //hand out the best solution found before the cancel
+		return false;
+	}
+
+	/**
+	 * Stop the search now; solve() returns the best solution found so far (possibly none).
+	 */
+
+	@Override
+	public void cancel() {
+		super.cancel(); //isCancelled(), and SolutionCache does not keep the result
+		Search s = _search;
+		if (s != null) {
+			s.stop();
+		}
+	}
+
+	/**
+	 * Everything one solve() shares with its workers.  Each solve() makes a new one and the
+	 * workers only see their own, so nothing of an earlier solve() can reach a later one.
+	 */
+
+	private static final class Search {
+		final CompiledModel _cm;
+		final double _alpha;
+		final int _need;    //covered count asked for
+		final int _target;  //covered count of a complete solution (need, or all that can be covered)
+		volatile boolean _stop; //ends the search (deadline, gap reached or cancel())
+		final CountDownLatch _wake = new CountDownLatch(1);  //cancel(), or the gap tolerance reached
+		final CountDownLatch _first = new CountDownLatch(1); //first finished pass, cancel(), or no worker left
+		final AtomicReference<Candidate> _best = new AtomicReference<Candidate>();
+		final AtomicInteger _numRuns = new AtomicInteger();
+		final AtomicInteger _workers;     //still running
+		volatile Throwable _failure;      //of a worker that died
+		volatile LagrangianBound _bounder; //the bound being computed, so stop() can end it
+		volatile double _bound = Double.NaN;
+		volatile boolean[] _pruned;       //by rank, once the bound is known
+		int _numPruned;
+
+		Search(CompiledModel cm, double alpha, int need, int target, int workers) {
+			_cm = cm;
+			_alpha = alpha;
+			_need = need;
+			_target = target;
+			_workers = new AtomicInteger(workers);
+		}
+
+		void stop() {
+			_stop = true;
+			_wake.countDown();
+			_first.countDown();
+			LagrangianBound lb = _bounder;
+			if (lb != null) {
+				lb.cancel();
+			}
+		}
+	}
+
+	/**
+	 * Best solution of one pass: its sets (ranks) in pick order, cost and covered count (capped
+	 * at the number asked for, so covering more than needed is not worth paying for).
+	 */
+
+	private static final class Candidate {
+		final int[] _ranks;
+		final double _cost;
+		final int _covered;
+
+		Candidate(int[] ranks, double cost, int covered) {
+			_ranks = ranks;
+			_cost = cost;
+			_covered = covered;
+		}
+
+		boolean beats(Candidate o) {
+			return o == null || _covered > o._covered || (_covered == o._covered && _cost < o._cost);
+		}
+	}
+
+	@Override
+	protected void initSelection() {
+		int numE = _compiled.getNumE();
+		int need = (int)Math.ceil(_alpha * numE); //same target as solve()
+		int coverable = 0;
+		for (int e = 0; e < numE; e++) {
+			if (_compiled.getFrequency(e) > 0) {
+				coverable++;
+			}
+		}
+		Search s = new Search(_compiled, _alpha, need, Math.min(need, coverable), _threads);
+		_search = s;
+		if (isCancelled()) { //cancel() came after solve() started but before s was visible to it: do not lose it
+			s.stop();
+		}
+		long deadline = System.nanoTime() + _timeLimit * 1000000L;
+
+		ExecutorService pool = Executors.newFixedThreadPool(_threads);
+		for (int w = 0; w < _threads; w++) {
+			final int worker = w;
+			pool.execute(() -> search(s, worker));
+		}
+
+		try {
+			if (_gapTolerance >= 0) {
+				bound(s, deadline); //on this thread while the workers search
+			}
+			s._wake.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+			if (s._best.get() == null) {
+				s._first.await(); //past the deadline without a solution: wait for the first pass (or cancel(), or the last worker to end)
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		s.stop();
+		pool.shutdown();
+		try {
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS); //the workers check the stop flag often
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		Candidate best = s._best.get();
+		if (best == null && s._failure != null && !isCancelled()) {
+			throw new IllegalStateException("'" + getName() + "' search failed", s._failure);
+		}
+		_picks = best == null ? new int[0] : best._ranks;
+		_next = 0;
+		if (_gapTolerance >= 0) {
+			_lowerBound = s._bound; //NaN if it could not be computed in time
+		}
+	}
+
+	private void bound(Search s, long deadline) throws InterruptedException {
+		if (!s._first.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS) || s._best.get() == null) {
+			return; //no solution yet to aim the steps at
+		}
+		LagrangianBound lb = new LagrangianBound(s._cm);
+		lb.setTolerance(_gapTolerance);
+		lb.setTimeLimit(Math.max(0, (deadline - System.nanoTime()) / 1000000L));
+		s._bounder = lb;
+		if (s._stop) {
+			return; //cancelled before _bounder was visible to stop()
+		}
+		double upper = s._best.get()._cost;
+		s._bound = lb.compute(s._alpha, upper);
+		s._bounder = null;
+
+		boolean[] pruned = lb.prunable(upper);
+		for (boolean p : pruned) {
+			s._numPruned += p ? 1 : 0;
+		}
+		s._pruned = pruned;
+		checkGap(s, s._best.get());
+	}
+
+	private void checkGap(Search s, Candidate c) { //wake solve() up once c is complete and close enough to the bound
+		double b = s._bound;
+		if (!Double.isNaN(b) && c != null && c._covered >= s._target && LagrangianBound.gap(c._cost, b) <= _gapTolerance) {
+			s._stop = true;
+			s._wake.countDown();
+		}
+	}
+
+	private void search(Search s, int worker) {
+		try {
+			SplittableRandom rnd = new SplittableRandom(_seed * 0x9E3779B97F4A7C15L + worker);
+			Pass pass = new Pass(s);
+
+			for (int run = 0; !s._stop; run++) {
+				boolean plain = worker == 0 && run == 0;
+				boolean coverage = !plain && run % 4 == 3;
+				Candidate c = pass.run(s._need, plain ? 0 : _noise, coverage, plain ? null : rnd);
+				if (c == null) {
+					return; //stopped in the middle
+				}
+				s._numRuns.incrementAndGet();
+
+				Candidate cur = s._best.get();
+				while (c.beats(cur) && !s._best.compareAndSet(cur, c)) {
+					cur = s._best.get();
+				}
+				if (cur == null) {
+					s._first.countDown(); //the first solution: solve() may be waiting for it
+				}
+				if (c.beats(cur)) {
+					checkGap(s, c);
+				}
+			}
+		}
+		catch (Throwable t) { //e.g. out of memory for the pass arrays; solve() reports it if no worker found anything
+			s._failure = t;
+		}
+		finally {
+			if (s._workers.decrementAndGet() == 0) {
+				s._first.countDown(); //no pass will come any more
+			}
+		}
+	}
+
+	/**
+	 * One greedy pass with noisy scores.  Keeps its arrays between passes of the same worker.
+	 */
+
+	private final class Pass {
+
+		private final Search _s;
+		private final CompiledModel _cm;
+		private final int[] _unc;
+		private final boolean[] _covered;
+		private final double[] _weight;
+		private final long[] _tie;
+		private int[] _picks = new int[64];
+
+		Pass(Search s) {
+			CompiledModel cm = s._cm;
+			_s = s;
+			_cm = cm;
+			_unc = new int[cm.getNumS()];
+			_covered = new boolean[cm.getNumE()];
+			_weight = new double[cm.getNumS()];
+			_tie = new long[cm.getNumS()];
+		}
+
+		Candidate run(int need, double noise, boolean coverage, SplittableRandom rnd) {
+			int m = _cm.getNumS();
+			boolean[] pruned = _s._pruned;
+			Arrays.fill(_covered, false);
+			PriorityQueue<long[]> heap = new PriorityQueue<long[]>(Math.max(1, m), (a, b) -> {
+				int c = Double.compare(Double.longBitsToDouble(a[0]), Double.longBitsToDouble(b[0]));
+				return c != 0 ? c : Long.compare(a[1], b[1]);
+			});
+			for (int r = 0; r < m; r++) {
+				if ((r & 1023) == 0 && _s._stop) {
+					return null; //large models: do not finish the heap after the deadline
+				}
+				_unc[r] = _cm.getSize(r);
+				_weight[r] = rnd == null ? 1 : 1 + noise * (2 * rnd.nextDouble() - 1);
+				_tie[r] = rnd == null ? r : ((long) rnd.nextInt() << 32) | r; //random order among equal scores
+				double s = score(r, coverage);
+				if (s < Double.MAX_VALUE && (pruned == null || !pruned[r])) {
+					heap.add(new long[] {Double.doubleToLongBits(s), _tie[r], r});
+				}
+			}
+
+			int uncovered = _cm.getNumE();
+			int leeway = _cm.getNumE() - need;
+			int numPicks = 0;
+			double cost = 0;
+			while (uncovered > leeway && !heap.isEmpty()) {
+				if (_s._stop) {
+					return null;
+				}
+				long[] top = heap.poll();
+				int r = (int) top[2];
+				double s = score(r, coverage);
+				if (!(s < Double.MAX_VALUE)) {
+					continue; //covers nothing any more
+				}
+				long[] next = heap.peek();
+				if (s > Double.longBitsToDouble(top[0]) && next != null) { //stale key: refresh and look again
+					top[0] = Double.doubleToLongBits(s);
+					heap.add(top);
+					continue;
+				}
+
+				if (numPicks == _picks.length) {
+					_picks = Arrays.copyOf(_picks, numPicks * 2);
+				}
+				_picks[numPicks++] = r;
+				cost += _cm.getCost(r);
+				for (int p = _cm.start(r); p < _cm.end(r); p++) {
+					int e = _cm.element(p);
+					if (!_covered[e]) {
+						_covered[e] = true;
+						uncovered--;
+						for (int q = _cm.setsStart(e); q < _cm.setsEnd(e); q++) {
+							_unc[_cm.setAt(q)]--;
+						}
+					}
+				}
+			}
+			return new Candidate(Arrays.copyOf(_picks, numPicks), cost, Math.min(need, _cm.getNumE() - uncovered));
+		}
+
+		private double score(int r, boolean coverage) { //lower is better; MAX_VALUE or more (or NaN) is never picked
+			if (_unc[r] == 0) {
+				return Double.POSITIVE_INFINITY;
+			}
+			return coverage ? -_unc[r] * _weight[r] : _cm.getCost(r) * _weight[r] / _unc[r];
+		}
+	}
+
+	/**
+	 * Override nextBestSet: the sets of the best solution, in the order they were picked
+	 */
+
+	@Override
+	public ElementSet nextBestSet() {
+		if (_next == _picks.length) {
+			return null;
+		}
+		return _compiled.getSet(_picks[_next++]);
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ *
+ */
+package solver;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import util.ElementSet;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Hands the events of one or more solvers to another listener on a background thread, so the
+ * greedy loop only pays for putting an event into a bounded ring buffer (an ArrayBlockingQueue).
+ * When the buffer is full the event is dropped rather than making the solver wait, and counted
+ * (getDropped()).  Events are delivered in the order they were posted; an event the target
+ * listener throws on is counted (getFailed(), with the last exception kept) and delivery goes
+ * on.  close() delivers what is left and stops the thread.
+ *
+ */
+
+public class AsyncListener implements SolverListener, AutoCloseable {
+
+	private static final Runnable END = () -> { };
+
+	private final SolverListener _target;
+	private final BlockingQueue<Runnable> _ring;
+	private final Thread _thread;
+	private final AtomicLong _dropped = new AtomicLong();
+	private final AtomicLong _failed = new AtomicLong();
+	private volatile RuntimeException _lastFailure;
+
+	public AsyncListener(SolverListener target) {
+		this(target, 8192);
+	}
+
+	public AsyncListener(SolverListener target, int capacity) {
+		_target = target;
+		_ring = new ArrayBlockingQueue<Runnable>(Math.max(1, capacity));
+		_thread = new Thread(this::drain, "solver-listener");
+		_thread.setDaemon(true); //never keeps the JVM alive
+		_thread.start();
+	}
+
+	public long getDropped() { return _dropped.get(); }
+	public long getFailed() { return _failed.get(); }                //events the target threw on
+	public RuntimeException getLastFailure() { return _lastFailure; } //null if none
+
+	@Override
+	public void solveStarted(GreedySolver solver) {
+		post(() -> _target.solveStarted(solver));
+	}
+
+	@Override
+	public void setSelected(GreedySolver solver, ElementSet set, int iteration) {
+		post(() -> _target.setSelected(solver, set, iteration));
+	}
+
+	@Override
+	public void coverageNotReached(GreedySolver solver, double alpha) {
+		post(() -> _target.coverageNotReached(solver, alpha));
+	}
+
+	@Override
+	public void solveFinished(GreedySolver solver, SolverMetrics metrics) {
+		post(() -> _target.solveFinished(solver, metrics));
+	}
+
+	/**
+	 * Deliver the events still in the buffer, then stop the background thread.
+	 */
+
+	@Override
+	public void close() {
+		try {
+			_ring.put(END);
+			_thread.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void post(Runnable event) {
+		if (!_ring.offer(event)) {
+			_dropped.incrementAndGet();
+		}
+	}
+
+	private void drain() {
+		try {
+			for (Runnable r = _ring.take(); r != END; r = _ring.take()) {
+				try {
+					r.run();
+				}
+				catch (RuntimeException e) { //a failing listener must not stop the delivery of later events
+					_lastFailure = e;
+					_failed.incrementAndGet();
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,76 @@
+/**
+ *
+ */
+package solver;
+import model.CompiledModel;
+import util.ElementSet;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Bit-matrix form of a model for the SIMD scoring modes: one row of ceil(n/64) words per set
+ * (in ID order) plus a flat word array of the uncovered elements, so a full scan is a single
+ * ScoringKernel call.  The matrix takes m*n/8 bytes, so this is meant for dense instances; it is
+ * one array, so m*ceil(n/64) must stay below the array size limit (see fits()).
+ *
+ */
+
+class BitsetScorer {
+
+	private final CompiledModel _model;
+	private final int _words;           //words per row
+	private final long[] _setBits;      //row r = elements of set r
+	private final long[] _uncovered;
+	private final int[] _counts;        //uncovered elements per set after the last score()
+	private final ScoringKernel _kernel;
+
+	private static final long MAX_WORDS = Integer.MAX_VALUE - 8; //largest array most VMs allow
+
+	static boolean fits(CompiledModel model) { //false if the matrix cannot be one array (the solvers then scan instead)
+		return (long) model.getNumS() * ((model.getNumE() + 63) >>> 6) <= MAX_WORDS;
+	}
+
+	BitsetScorer(CompiledModel model, ScoringKernel kernel) {
+		if (!fits(model)) {
+			throw new IllegalArgumentException("bit matrix of " + model.getNumS() + " sets by " + model.getNumE() + " elements is too big for one array");
+		}
+		_model = model;
+		_kernel = kernel;
+		_words = (model.getNumE() + 63) >>> 6;
+		_setBits = new long[model.getNumS() * _words]; //no overflow: fits() bounds it, and so every row base r * _words below
+		_uncovered = new long[_words];
+		_counts = new int[model.getNumS()];
+
+		for (int r = 0; r < model.getNumS(); r++) {
+			int base = r * _words;
+			for (int p = model.start(r); p < model.end(r); p++) {
+				int e = model.element(p);
+				_setBits[base + (e >>> 6)] |= 1L << e;
+			}
+		}
+	}
+
+	boolean isFor(CompiledModel model) { //false if the matrix was built for another (version of the) model
+		return _model == model;
+	}
+
+	void uncoverAll() { //start of a solve: every element is uncovered
+		int numE = _model.getNumE();
+		for (int w = 0; w < _words; w++) {
+			int bits = Math.min(64, numE - (w << 6));
+			_uncovered[w] = bits == 64 ? -1L : (1L << bits) - 1;
+		}
+	}
+
+	void cover(int e) {
+		_uncovered[e >>> 6] &= ~(1L << e);
+	}
+
+	int[] score() { //uncovered count of every set, by rank
+		_kernel.countUncovered(_setBits, _words, _uncovered, 0, _counts.length, _counts);
+		return _counts;
+	}
+
+	int getNumS() { return _counts.length; }
+	ElementSet getSet(int rank) { return _model.getSet(rank); }
+}
@@ -2,6 +2,7 @@
  * 
  */
 package solver;
+import java.util.PriorityQueue;
 import util.ElementSet;
 import model.SCPModel;
 
@@ -23,8 +24,89 @@ import model.SCPModel;
 
 public class ChvatalSolver extends GreedySolver { //inherits from GreedySolver
 	
+	/**
+	 * How nextBestSet() finds the smallest ratio:
+	 * SCAN - rescan every set and recount its uncovered elements (the original implementation)
+	 * LAZY - keep the sets in a min-heap keyed by a (possibly stale) ratio and only recompute the
+	 *        ratio of the set on top.  A set's ratio can only grow as coverage grows (costs are
+	 *        assumed non-negative), so a stale key is a lower bound and the heap top is exact once
+	 *        its recomputed ratio is still no worse than the next key.  Picks the same sets as SCAN.
+	 * SIMD - SCAN on a bit matrix of the model, with all uncovered counts computed by a
+	 *        ScoringKernel (Vector API when available, scalar otherwise); for dense instances.
+	 *        Runs as SCAN when the matrix is too big for one array.
+	 * SAMPLED - stochastic greedy: each pick scores a seeded random sample of the sets (see
+	 *        SetSampler).  Much faster for large m, at a small, usually higher, cost.
+	 */
+	public enum Mode { SCAN, LAZY, SIMD, SAMPLED }
+	
+	private Mode _mode;
+	private PriorityQueue<RatioEntry> _heap; //only used in LAZY mode
+	private ScoringKernel _kernel;            //SIMD mode; created on first use
+	private BitsetScorer _scorer;            //bit matrix of the current model (SIMD mode)
+	private final SetSampler _sampler = new SetSampler(); //SAMPLED mode
+	
 	public ChvatalSolver() {
+		this(Mode.SCAN);
+	}
+	
+	public ChvatalSolver(Mode mode) {
 		_name = "Chvatal"; //name changes for each class, set name for the solver here (shown when program is run)
+		_mode = mode;
+	}
+	
+	public void setMode(Mode mode) { _mode = mode; }
+	public Mode getMode() { return _mode; }
+	public void setKernel(ScoringKernel kernel) { _kernel = kernel; _scorer = null; }
+	public SetSampler getSampler() { return _sampler; } //epsilon and seed of SAMPLED mode
+	
+	@Override
+	public String getVariant() { return _mode == Mode.SAMPLED && !_parallel ? _name + " " + _sampler : _name; } //the other modes (and parallel scans) pick the same sets
+
+	/**
+	 * Build the heap for LAZY mode with the exact starting ratio of every set
+	 */
+	
+	@Override
+	protected void initSelection() {
+		if (_mode == Mode.SIMD) {
+			if (_kernel == null) {
+				_kernel = ScoringKernel.create();
+			}
+			if (!BitsetScorer.fits(_compiled)) {
+				_scorer = null; //no matrix: nextBestSet() scans
+			}
+			else {
+				if (_scorer == null || !_scorer.isFor(_compiled)) {
+					_scorer = new BitsetScorer(_compiled, _kernel);
+				}
+				_scorer.uncoverAll();
+			}
+		}
+		if (_mode == Mode.SAMPLED) {
+			_sampler.reset(_compiled);
+		}
+		
+		if (_mode != Mode.LAZY) {
+			_heap = null;
+			return;
+		}
+		
+		_heap = new PriorityQueue<RatioEntry>(Math.max(1, _compiled.getNumS()));
+		for (int r = 0; r < _compiled.getNumS(); r++) {
+			ElementSet es = _compiled.getSet(r);
+			double ratio = ratio(es);
+			if (ratio < Double.MAX_VALUE) { //same test as the scan: sets that cover nothing can never be picked
+				_heap.add(new RatioEntry(es, ratio));
+			}
+		}
+		countScan(_compiled.getNumS(), _compiled.getNumEntries());
+	}
+
+	@Override
+	protected void elementCovered(int element) {
+		if (_mode == Mode.SIMD && _scorer != null) {
+			_scorer.cover(element);
+		}
 	}
 
 	/**
@@ -34,6 +116,16 @@ public class ChvatalSolver extends GreedySolver { //inherits from GreedySolver
 	@Override
 	public ElementSet nextBestSet() {
 		
+		if (_mode == Mode.LAZY) {
+			return lazyBestSet();
+		}
+		if (_mode == Mode.SIMD && _scorer != null) {
+			return simdBestSet();
+		}
+		if (_mode == Mode.SAMPLED) {
+			return _sampler.next(this, _compiled);
+		}
+		
 		ElementSet bset = null;
 		double costCovRatio=0; //cost-coverage ratio of the current set is initialized to 0.
 		double smallestRatio = Double.MAX_VALUE; //set to MAX value so that initially, ratio of a set is always < than it. 
@@ -46,8 +138,8 @@ public class ChvatalSolver extends GreedySolver { //inherits from GreedySolver
 			//costCovRatio = es.getCost()/(double)_uncElements.size();
 			uncE=0; //reset counter for each element set
 			
-			for (Integer element : es.getESet()) {
-				if (_uncElements.contains(element)) { //if the elements in the element set are also uncovered, increase the counter
+			for (int i = 0; i < es.size(); i++) {
+				if (_uncElements.contains(es.elementAt(i))) { //if the elements in the element set are also uncovered, increase the counter
 					uncE++;
 				}
 			}
@@ -63,8 +155,97 @@ public class ChvatalSolver extends GreedySolver { //inherits from GreedySolver
 			}
 		}
 		
-		printSelectedSet(bset); //print each selected set using the formatting provided in TestSCPSoln
+		countScan(_compiled.getNumS(), _compiled.getNumEntries()); //every element of every set was looked up
 		
 		return bset; //return next best set
 	}
+	
+	private ElementSet lazyBestSet() {
+		
+		ElementSet bset = null;
+		int refreshed = 0;
+		long checks = 0;
+		
+		while (!_heap.isEmpty()) {
+			RatioEntry top = _heap.poll();
+			top._ratio = ratio(top._set); //refresh the stale key of the candidate only
+			refreshed++;
+			checks += top._set.size();
+			
+			if (!(top._ratio < Double.MAX_VALUE)) { //covers nothing any more, it will never be picked again
+				continue;
+			}
+			
+			RatioEntry next = _heap.peek();
+			if (next == null || top.compareTo(next) <= 0) { //still ahead of every (lower bound) key: this is the true minimum
+				bset = top._set; //the picked set covers nothing afterwards, so it is not pushed back
+				break;
+			}
+			
+			_heap.add(top); //ratio got worse, put it back and look at the new top
+		}
+		
+		countScan(refreshed, checks);
+		return bset;
+	}
+	
+	private ElementSet simdBestSet() {
+		
+		ElementSet bset = null;
+		double smallestRatio = Double.MAX_VALUE;
+		int[] counts = _scorer.score(); //all counts in one kernel call
+		
+		for (int r = 0; r < counts.length; r++) {
+			double ratio = _scorer.getSet(r).getCost()/(double)counts[r];
+			if (ratio < smallestRatio) { //same strict test as the scan, so the lowest ID wins a tie
+				smallestRatio = ratio;
+				bset = _scorer.getSet(r);
+			}
+		}
+		
+		countScan(counts.length, 0); //counted with bit operations, no lookups
+		return bset;
+	}
+	
+	@Override
+	public boolean supportsParallel() { return true; }
+	
+	@Override
+	protected double score(ElementSet es) { //the cost-coverage ratio (infinite or NaN when the set covers nothing)
+		return ratio(es);
+	}
+	
+	private double ratio(ElementSet es) { //cost-coverage ratio, computed exactly like the scan above
+		int uncE = 0;
+		
+		for (int i = 0; i < es.size(); i++) {
+			if (_uncElements.contains(es.elementAt(i))) {
+				uncE++;
+			}
+		}
+		
+		return es.getCost()/(double)uncE;
+	}
+	
+	/**
+	 * Heap entry for LAZY mode; ordered by ratio, then by set ID to match the scan's tie-break
+	 * (the scan keeps the first set in ID order among equal ratios).
+	 */
+	
+	private static class RatioEntry implements Comparable<RatioEntry> {
+		
+		private final ElementSet _set;
+		private double _ratio;
+		
+		RatioEntry(ElementSet set, double ratio) {
+			_set = set;
+			_ratio = ratio;
+		}
+		
+		@Override
+		public int compareTo(RatioEntry o) {
+			int c = Double.compare(_ratio, o._ratio);
+			return c != 0 ? c : Integer.compare(_set.getSetID(), o._set.getSetID());
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+/**
+ *
+ */
+package solver;
+import util.ElementSet;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Prints the progress of solve() to System.out in the format of TestSCPSoln: "Running",
+ * one "- Selected" line per set, the coverage warning and "Done".  Formatting every pick
+ * (with all its element IDs) is slow on large instances, so use it for small ones, or behind
+ * an AsyncListener.
+ *
+ */
+
+public class ConsoleListener implements SolverListener {
+
+	@Override
+	public void solveStarted(GreedySolver solver) {
+		System.out.println("Running '" + solver.getName() + "'...");
+	}
+
+	@Override
+	public void setSelected(GreedySolver solver, ElementSet set, int iteration) {
+		solver.printSelectedSet(set);
+	}
+
+	@Override
+	public void coverageNotReached(GreedySolver solver, double alpha) {
+		System.out.format("\nWARNING: Impossible to reach %.2f%% coverage level.\n", 100*alpha);
+	}
+
+	@Override
+	public void solveFinished(GreedySolver solver, SolverMetrics metrics) {
+		System.out.println("Done.");
+	}
+}
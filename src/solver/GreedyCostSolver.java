@@ -2,6 +2,7 @@
  * 
  */
 package solver;
+import java.util.Arrays;
 import util.ElementSet;
 import model.SCPModel;
 
@@ -18,8 +19,76 @@ import model.SCPModel;
 
 public class GreedyCostSolver extends GreedySolver {
 	
+	/**
+	 * How nextBestSet() finds the cheapest useful set:
+	 * SCAN   - walk every set and check whether it still covers something (the original implementation)
+	 * CURSOR - sort the sets by (cost, set ID) once per solve() and advance a cursor past the sets
+	 *          whose live uncovered count (kept in step with solve()'s removals through the
+	 *          compiled model's element -> sets index) has dropped to zero.  Counts only go down, so the cursor
+	 *          never moves back and the whole solve is O(m log m + total elements).
+	 */
+	public enum Mode { SCAN, CURSOR }
+	
+	private Mode _mode;
+	
+	private int[] _uncCount;        //live number of uncovered elements per set rank
+	private int[] _order;           //set ranks sorted by (cost, rank)
+	private int _cursor;            //position in _order of the cheapest set that may still cover something
+	
 	public GreedyCostSolver() {
+		this(Mode.SCAN);
+	}
+	
+	public GreedyCostSolver(Mode mode) {
 		_name = "Cost"; //set name of solver (this will be printed when program is run)
+		_mode = mode;
+	}
+	
+	public void setMode(Mode mode) { _mode = mode; }
+	public Mode getMode() { return _mode; }
+	
+	@Override
+	public void setModel(SCPModel model) {
+		super.setModel(model);
+		if (_mode == Mode.CURSOR) {
+			model.freeze(); //builds the element -> sets index now, once per model, for every solve()
+		}
+	}
+	
+	@Override
+	protected void initSelection() {
+		if (_mode != Mode.CURSOR) {
+			_order = null;
+			return;
+		}
+		
+		int numS = _compiled.getNumS();
+		_uncCount = new int[numS];
+		Integer[] ranks = new Integer[numS];
+		for (int r = 0; r < numS; r++) {
+			_uncCount[r] = _compiled.getSize(r); //every element starts uncovered
+			ranks[r] = r;
+		}
+		
+		//stable sort keeps ID order among equal costs, which is the scan's tie-break
+		Arrays.sort(ranks, (a, b) -> Double.compare(_compiled.getCost(a), _compiled.getCost(b)));
+		
+		_order = new int[numS];
+		for (int i = 0; i < numS; i++) {
+			_order[i] = ranks[i];
+		}
+		_cursor = 0;
+	}
+	
+	@Override
+	protected void elementCovered(int element) {
+		if (_order == null) {
+			return;
+		}
+		
+		for (int p = _compiled.setsStart(element); p < _compiled.setsEnd(element); p++) {
+			_uncCount[_compiled.setAt(p)]--;
+		}
 	}
 
 	/**
@@ -30,14 +99,21 @@ public class GreedyCostSolver extends GreedySolver {
 	
 	public ElementSet nextBestSet() {
 
+		if (_mode == Mode.CURSOR) {
+			return cursorBestSet();
+		}
+		
 		ElementSet bset = null;
 		double smallestCost = Double.MAX_VALUE; //so that we do not run the risk of cost being smaller than smallestCost initially
-		boolean covers = false; //true if set includes at least one uncovered element
-		double cost=0;
+		long checks = 0; //for the metrics
 		
 		for (ElementSet es : _model.getSCP()) {
-			for (Integer element : es.getESet()) {
-				if(_uncElements.contains(element)) {
+			boolean covers = false; //true if set includes at least one uncovered element (reset for each set)
+			double cost = 0;
+			
+			for (int i = 0; i < es.size(); i++) {
+				checks++;
+				if(_uncElements.contains(es.elementAt(i))) {
 					covers = true;
 					cost = es.getCost();
 					break;
@@ -50,7 +126,45 @@ public class GreedyCostSolver extends GreedySolver {
 			}
 		}
 		
-		printSelectedSet(bset); //print each selected set using the formatting provided in TestSCPSoln
+		countScan(_compiled.getNumS(), checks);
 		return bset; //return next best set
 	}
+	
+	@Override
+	public boolean supportsParallel() { return true; }
+	
+	@Override
+	protected double score(ElementSet es) { //the cost, if the set still covers at least one element
+		for (int i = 0; i < es.size(); i++) {
+			if (_uncElements.contains(es.elementAt(i))) {
+				return es.getCost();
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+	
+	private ElementSet cursorBestSet() {
+		
+		ElementSet bset = null;
+		int start = _cursor;
+		
+		while (_cursor < _order.length) {
+			int r = _order[_cursor];
+			ElementSet es = _compiled.getSet(r);
+			
+			if (!(es.getCost() < Double.MAX_VALUE)) { //same bound as the scan; the rest of the order is no cheaper
+				break;
+			}
+			
+			if (_uncCount[r] > 0) { //cheapest set that still covers something; the cursor stays here until it is used up
+				bset = es;
+				break;
+			}
+			
+			_cursor++;
+		}
+		
+		countScan(Math.min(_cursor + 1, _order.length) - start, 0); //counts are kept up to date, no lookups
+		return bset;
+	}
 }
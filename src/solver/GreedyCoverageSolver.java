@@ -3,6 +3,7 @@
  */
 package solver;
 import util.ElementSet;
+import util.IntMinHeap;
 import model.SCPModel;
 
 /**
@@ -18,14 +19,132 @@ import model.SCPModel;
  */
 public class GreedyCoverageSolver extends GreedySolver {
 	
+	/**
+	 * How nextBestSet() finds the set with the most uncovered elements:
+	 * SCAN   - recount the uncovered elements of every set (the original implementation)
+	 * BUCKET - keep a live uncovered count per set, decremented through the compiled model's
+	 *          element -> sets index as solve() covers elements, and a bucket queue indexed by that count.  Each bucket
+	 *          is a small heap of set positions so ties still go to the lowest set ID, like SCAN.
+	 * SIMD   - SCAN on a bit matrix of the model: every count is popcount(set AND uncovered),
+	 *          computed for all sets by a ScoringKernel (Vector API when available, scalar otherwise).
+	 *          Best on dense instances, since the matrix takes m*n/8 bytes; runs as SCAN when the
+	 *          matrix is too big for one array.
+	 * SAMPLED - stochastic greedy: each pick counts a seeded random sample of the sets only (see
+	 *          SetSampler).  Much faster for large m, at a small loss in coverage per pick.
+	 */
+	public enum Mode { SCAN, BUCKET, SIMD, SAMPLED }
+	
+	private Mode _mode;
+	private ScoringKernel _kernel;    //SIMD mode; created on first use
+	private BitsetScorer _scorer;     //bit matrix of the current model (SIMD mode)
+	private final SetSampler _sampler = new SetSampler(); //SAMPLED mode
+	
+	private int[] _uncCount;          //live number of uncovered elements per set rank
+	private IntMinHeap[] _buckets;    //_buckets[c] holds ranks whose count was c when pushed (stale entries are skipped)
+	private int _top;                 //highest bucket that may still hold a live entry
+	
 	public GreedyCoverageSolver() {
+		this(Mode.SCAN);
+	}
+	
+	public GreedyCoverageSolver(Mode mode) {
 		_name = "Coverage"; //set name of solver (this will be printed when program is run)
+		_mode = mode;
+	}
+	
+	public void setMode(Mode mode) { _mode = mode; }
+	public Mode getMode() { return _mode; }
+	public void setKernel(ScoringKernel kernel) { _kernel = kernel; _scorer = null; }
+	public SetSampler getSampler() { return _sampler; } //epsilon and seed of SAMPLED mode
+	
+	@Override
+	public String getVariant() { return _mode == Mode.SAMPLED && !_parallel ? _name + " " + _sampler : _name; } //the other modes (and parallel scans) pick the same sets
+	
+	@Override
+	public void setModel(SCPModel model) {
+		super.setModel(model);
+		if (_mode == Mode.BUCKET) {
+			model.freeze(); //builds the element -> sets index now, once per model, for every solve()
+		}
+	}
+	
+	@Override
+	protected void initSelection() {
+		if (_mode == Mode.SIMD) {
+			if (_kernel == null) {
+				_kernel = ScoringKernel.create();
+			}
+			if (!BitsetScorer.fits(_compiled)) {
+				_scorer = null; //no matrix: nextBestSet() scans
+			}
+			else {
+				if (_scorer == null || !_scorer.isFor(_compiled)) {
+					_scorer = new BitsetScorer(_compiled, _kernel);
+				}
+				_scorer.uncoverAll();
+			}
+		}
+		if (_mode == Mode.SAMPLED) {
+			_sampler.reset(_compiled);
+		}
+		
+		if (_mode != Mode.BUCKET) {
+			_buckets = null;
+			return;
+		}
+		
+		int maxSize = 0;
+		_uncCount = new int[_compiled.getNumS()];
+		for (int r = 0; r < _uncCount.length; r++) {
+			_uncCount[r] = _compiled.getSize(r); //every element starts uncovered
+			maxSize = Math.max(maxSize, _uncCount[r]);
+		}
+		
+		_buckets = new IntMinHeap[maxSize + 1];
+		for (int r = 0; r < _uncCount.length; r++) {
+			if (_uncCount[r] > 0) {
+				bucket(_uncCount[r]).add(r);
+			}
+		}
+		_top = maxSize;
+	}
+	
+	@Override
+	protected void elementCovered(int element) {
+		if (_mode == Mode.SIMD) {
+			if (_scorer != null) {
+				_scorer.cover(element);
+			}
+			return;
+		}
+		
+		if (_buckets == null) {
+			return;
+		}
+		
+		for (int p = _compiled.setsStart(element); p < _compiled.setsEnd(element); p++) { //only the sets containing the element lose a count
+			int r = _compiled.setAt(p);
+			int count = --_uncCount[r];
+			if (count > 0) {
+				bucket(count).add(r); //its old entry goes stale
+			}
+		}
 	}
 
 @Override
 
 	public ElementSet nextBestSet() {
 		
+	if (_mode == Mode.BUCKET) {
+		return bucketBestSet();
+	}
+	if (_mode == Mode.SIMD && _scorer != null) {
+		return simdBestSet();
+	}
+	if (_mode == Mode.SAMPLED) {
+		return _sampler.next(this, _compiled);
+	}
+	
 	ElementSet bset = null; //start off with null - will change when a best set is found
 	int mostUncE = 0; //start off with the 'record' or maximum value set to 0 (this will update as we go thru sets)
 	int uncE = 0; //uncovered elements of current set 
@@ -33,8 +152,8 @@ public class GreedyCoverageSolver extends GreedySolver {
 	for (ElementSet es : _model.getSCP()) {
 		uncE = 0; //reset for each ElementSet
 		
-		for (Integer element : es.getESet()) {
-			if (_uncElements.contains(element)) { //count the number of uncovered elements for each set
+		for (int i = 0; i < es.size(); i++) { //dense element IDs, read straight from the model storage
+			if (_uncElements.contains(es.elementAt(i))) { //count the number of uncovered elements for each set
 				uncE++;
 			}
 		}
@@ -47,7 +166,71 @@ public class GreedyCoverageSolver extends GreedySolver {
 		}
 	}
 	
-		printSelectedSet(bset); //print each selected set using the formatting provided in TestSCPSoln
+		countScan(_compiled.getNumS(), _compiled.getNumEntries()); //every element of every set was looked up
 		return bset; //return next best set 
 	}
+
+	@Override
+	public boolean supportsParallel() { return true; }
+
+	@Override
+	protected double score(ElementSet es) { //most uncovered elements first; a set covering nothing is never picked
+		int uncE = 0;
+		for (int i = 0; i < es.size(); i++) {
+			if (_uncElements.contains(es.elementAt(i))) {
+				uncE++;
+			}
+		}
+		return uncE > 0 ? -uncE : Double.POSITIVE_INFINITY;
+	}
+
+	private ElementSet bucketBestSet() {
+		
+		ElementSet bset = null;
+		int popped = 0;
+		
+		while (_top > 0) { //bucket 0 is never used: a set covering nothing cannot be picked
+			IntMinHeap b = _buckets[_top];
+			
+			if (b == null || b.isEmpty()) { //counts only go down, so the top never moves back up
+				_top--;
+			}
+			else if (_uncCount[b.peek()] != _top) { //stale entry left behind by a decrement
+				b.poll();
+				popped++;
+			}
+			else {
+				bset = _compiled.getSet(b.poll()); //lowest rank with the highest count
+				popped++;
+				break;
+			}
+		}
+		
+		countScan(popped, 0); //counts are kept up to date, no lookups
+		return bset;
+	}
+	
+	private ElementSet simdBestSet() {
+		
+		ElementSet bset = null;
+		int mostUncE = 0;
+		int[] counts = _scorer.score(); //all counts in one kernel call
+		
+		for (int r = 0; r < counts.length; r++) {
+			if (counts[r] > mostUncE) { //same strict test as the scan, so the lowest ID wins a tie
+				mostUncE = counts[r];
+				bset = _scorer.getSet(r);
+			}
+		}
+		
+		countScan(counts.length, 0); //counted with bit operations, no lookups
+		return bset;
+	}
+	
+	private IntMinHeap bucket(int count) {
+		if (_buckets[count] == null) {
+			_buckets[count] = new IntMinHeap();
+		}
+		return _buckets[count];
+	}
 }
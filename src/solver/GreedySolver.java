@@ -1,7 +1,12 @@
 package solver;
+import java.util.Arrays;
 import java.util.SortedSet; //unused
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import model.CompiledModel;
 import model.SCPModel;
+import util.CompressedBitmap;
 import util.ElementSet;
 import java.lang.Math;
 
@@ -27,15 +32,37 @@ public abstract class GreedySolver {
 	protected String _name;			  // name of algorithm type
 	protected double _alpha;          // minimum required coverage level in range [0,1]
 	protected SCPModel _model;        // the SCP model we're currently operating on
+	protected CompiledModel _compiled; // its frozen, pre-indexed form (shared with other solvers), set by solve()
 	protected double _objFn;          // objective function value (*total cost sum* of all sets used)
 	protected double _coverage;       // actual coverage fraction achieved
 	protected long _compTime;         // computation time (ms)
 	protected TreeSet<ElementSet> _solnSets; //used below in the print statements
-	protected TreeSet<Integer> _uncElements; //uncovered elements
+	protected CompressedBitmap _uncElements; //uncovered elements (dense IDs, see ElementSet.elementAt)
+	protected boolean _parallel;      // score the sets on the fork-join pool instead of calling nextBestSet()
+	protected Trajectory _trajectory; // picks of the last solve(), with running cost and coverage
+	protected SolverListener _listener = SolverListener.NONE; // progress events of solve() (nothing is printed by default)
+	protected double _lowerBound = Double.NaN; // lower bound on the optimal cost at _alpha (see LagrangianBound), NaN if unknown
+	private volatile boolean _cancelled; // set by cancel() from another thread, cleared by the next solve()
+	
+	// Hot-path counters of the current solve() (see SolverMetrics), plain fields since solve() runs on one thread
+	private int _iterations;
+	private long _setupNanos, _selectNanos, _updateNanos, _maxIterNanos;
+	private final long[] _iterHist = new long[64];
+	private long _setsScanned, _membershipChecks;
+	private SolverMetrics _metrics;
 		
 	// Basic setter (only one needed)
 	public void setMinCoverage(double alpha) { _alpha = alpha; }
 	public void setModel(SCPModel model) { _model = model; }
+	public void setParallel(boolean parallel) { //only for solvers with a score(), see supportsParallel()
+		if (parallel && !supportsParallel()) {
+			throw new UnsupportedOperationException("'" + getName() + "' has no parallel scan");
+		}
+		_parallel = parallel;
+	}
+	public void setVerbose(boolean verbose) { _listener = verbose ? new ConsoleListener() : SolverListener.NONE; } //print progress (Running/Selected/Done) or not
+	public void setListener(SolverListener listener) { _listener = listener == null ? SolverListener.NONE : listener; }
+	public void setLowerBound(double bound) { _lowerBound = bound; } //e.g. LagrangianBound.getBound() for this model and alpha, reported by print()
 	
 	// Basic getters
 	public double getMinCoverage() { return _alpha; }
@@ -43,17 +70,43 @@ public abstract class GreedySolver {
 	public double getCoverage() { return _coverage; }
 	public long getCompTime() { return _compTime; }
 	public String getName() { return _name; }
+	public String getVariant() { return _name; } //name plus any setting that changes the picks (SolutionCache keys on it)
+	public TreeSet<ElementSet> getSolnSets() { return _solnSets; } //sets picked by the last solve(), in ID order
+	public Trajectory getTrajectory() { return _trajectory; }
+	public boolean isParallel() { return _parallel; }
+	public boolean isVerbose() { return _listener instanceof ConsoleListener; }
+	public SolverListener getListener() { return _listener; }
+	public SolverMetrics getMetrics() { return _metrics; } //counters and timers of the last solve()
+	public boolean isCancelled() { return _cancelled; }
+	public double getLowerBound() { return _lowerBound; }
+	public double getGap() { return Double.isNaN(_lowerBound) ? Double.NaN : LagrangianBound.gap(_objFn, _lowerBound); } //relative distance from optimal at most
+	
+	/** Stop the solve() in progress (from another thread) after its current pick; the solver is
+	 *  left with the sets picked so far, as if no more sets could improve the coverage.
+	 */
+	
+	public void cancel() { _cancelled = true; }
+	
+	/** Whether cancel() ends the selection loop at the next pick.  A solver that searches in
+	 *  initSelection() and only hands the result out through nextBestSet() returns false, so a
+	 *  cancelled solve() still ends with the best solution its search found.
+	 */
+	
+	protected boolean picksStopOnCancel() {
+		return true;
+	}
 			
 	public void reset() { //clear so that solver can be used again
 		_coverage = 0;
 		_compTime = 0; //I am resetting comp time, but this will not be super important bc the time-based winner check has been removed
 		_objFn = 0;
 		_solnSets = new TreeSet<ElementSet>();
-		_uncElements = new TreeSet<Integer>();
+		_uncElements = new CompressedBitmap();
 	}
 	
-	public void printSelectedSet (ElementSet selected) { 
-		System.out.format("- Selected: Set ID:   %d   Cost:   %.2f   Element IDs: %s\n", selected.getSetID(), selected.getCost(), selected.getESet());
+	public void printSelectedSet (ElementSet selected) { //called by ConsoleListener for every pick
+		if (selected != null) //null: no set can cover anything more (e.g. elements of removed sets)
+			System.out.format("- Selected: Set ID:   %d   Cost:   %.2f   Element IDs: %s\n", selected.getSetID(), selected.getCost(), selected.getESet());
 	} //format of the information of the selected element set is based on TestSCPSoln
 	
 	/** Run the simple greedy heuristic -- add the next best set until either
@@ -64,29 +117,46 @@ public abstract class GreedySolver {
 	public void solve() {
 		
 		// Reset the solver
+		long setupStart = System.nanoTime();
+		SolverEvents.Solve event = SolverEvents.isRecording() ? new SolverEvents.Solve() : null; //no JFR classes are touched otherwise
+		if (event != null)
+			event.begin();
+		boolean pickEvents = event != null && new SolverEvents.Pick().isEnabled(); //checked once per solve, so the loop only tests a flag
+		resetMetrics();
 		reset();
+		_cancelled = false;
+		_compiled = _model.freeze(); //universe size, set sizes and indexes are computed once per model, not per solve
+		int numE = _compiled.getNumE();
 		
 		// Preliminary initializations
 		// NOTE: In order to match the solution, pay attention to the following
 		//       calculations (where you have to replace ALL-CAPS parts)
 		//
-		int num_to_cover = (int)Math.ceil(_alpha * _model.getNumE()); //we have to cover alpha % of the total number of elements we have
-		int num_can_leave_uncovered = _model.getNumE() - num_to_cover; //this is the amount of leeway we have (based on the value of alpha)
+		int num_to_cover = (int)Math.ceil(_alpha * numE); //we have to cover alpha % of the total number of elements we have
+		int num_can_leave_uncovered = numE - num_to_cover; //this is the amount of leeway we have (based on the value of alpha)
 		boolean allPSetsSelected = false;	//all possible sets have not been selected
-		_uncElements.addAll(_model.getAllE()); //in the beginning, amount of uncovered elements is ALL the elements within the model
+		_uncElements.addRange(0, numE); //in the beginning, amount of uncovered elements is ALL the elements within the model (dense IDs 0..n-1)
+		_trajectory = new Trajectory(_compiled);
 				
 		// Begin the greedy selection loop
 		long start = System.currentTimeMillis();
-		System.out.println("Running '" + getName() + "'...");
+		_listener.solveStarted(this);
+		if (!_parallel) {
+			initSelection(); //let the heuristic build any per-solve state it needs (counted in the solve time)
+		}
+		_setupNanos = System.nanoTime() - setupStart;
 
 		// while (NUM_ELEMENTS_NOT_COVERED > num_can_leave_uncovered && ALL_POSSIBLE_SETS_HAVE_NOT_BEEN_SELECTED)
 		//
 		//      Call nextBestSet() to get the next best ElementSet to add (if there is one)
 		// 		Update solution and local members
 				
-			while (_uncElements.size() > num_can_leave_uncovered && (allPSetsSelected==false)) { 
+			while (_uncElements.cardinality() > num_can_leave_uncovered && (allPSetsSelected==false)) { 
 				//we have to cover a certain amount of elements and we keep going until all possible sets have been selected
-				ElementSet bSet = nextBestSet();
+				long iterStart = System.nanoTime();
+				ElementSet bSet = _cancelled && picksStopOnCancel() ? null : _parallel ? parallelBestSet() : nextBestSet();
+				long selected = System.nanoTime();
+				_selectNanos += selected - iterStart;
 								
 				if (bSet==null) { //when there is no nextBestSet
 					allPSetsSelected = true; //at this point, all possible sets have been selected and we can end
@@ -94,13 +164,34 @@ public abstract class GreedySolver {
 				}
 				
 				else {
-					_uncElements.removeAll(bSet.getESet()); //this affects the condition of the while loop.
-					//once an element has been covered in the nextBestSet, it is no longer uncovered so we remove it from uncovered elements
+					for (int i = 0; i < bSet.size(); i++) { //this affects the condition of the while loop.
+						//once an element has been covered in the nextBestSet, it is no longer uncovered so we remove it from uncovered elements
+						int element = bSet.elementAt(i);
+						if (_uncElements.remove(element) && !_parallel) {
+							elementCovered(element); //tell the heuristic, so indexed engines only touch the affected sets
+						}
+					}
 					//test: System.out.println("\n" + _uncElements + "\n");
 					_solnSets.add(bSet); //add the nextBestSet to our set of solutions
 					_objFn = _objFn + bSet.getCost(); // add current _objFn + cost of the nextBestSet
+					_trajectory.add(bSet, _objFn, numE - _uncElements.cardinality(), System.currentTimeMillis() - start);
+					
+					long done = System.nanoTime();
+					_updateNanos += done - selected;
+					_iterations++;
+					_iterHist[SolverMetrics.bucket(done - iterStart)]++;
+					_maxIterNanos = Math.max(_maxIterNanos, done - iterStart);
+					if (pickEvents) {
+						SolverEvents.Pick pick = new SolverEvents.Pick();
+						pick.solver = getName();
+						pick.iteration = _iterations;
+						pick.setID = bSet.getSetID();
+						pick.covered = numE - _uncElements.cardinality();
+						pick.commit();
+					}
+					_listener.setSelected(this, bSet, _iterations);
 					
-					if (_solnSets.size() == _model.getNumS()) { //if all sets of the model are solutions, we have covered all possible sets
+					if (_solnSets.size() == _compiled.getNumS()) { //if all sets of the model are solutions, we have covered all possible sets
 						allPSetsSelected = true;
 					}				
 				}
@@ -108,12 +199,107 @@ public abstract class GreedySolver {
 				
 		
 		// Record final set coverage, compTime and print warning if applicable
-		_coverage = (double) ((_model.getNumE() - _uncElements.size()) / (double) _model.getNumE()); // coverage = sets covered/total sets. casted to double so the division gives a double output that matches the type of _coverage
+		_coverage = (double) ((numE - _uncElements.cardinality()) / (double) numE); // coverage = sets covered/total sets. casted to double so the division gives a double output that matches the type of _coverage
 		_compTime = System.currentTimeMillis() - start; //I am keeping it in case, but time-based category winners are no longer being checked for
+		_trajectory.finish(allPSetsSelected && !_cancelled); //a cancelled run says nothing about later picks
+		_metrics = new SolverMetrics(getName(), _iterations, _setupNanos, _selectNanos, _updateNanos, _maxIterNanos, _iterHist,
+				_setsScanned, _membershipChecks);
+		
+		if (event != null) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.solver = getName();
+				event.numSets = _compiled.getNumS();
+				event.numElements = numE;
+				event.alpha = _alpha;
+				event.iterations = _iterations;
+				event.setupNanos = _setupNanos;
+				event.selectionNanos = _selectNanos;
+				event.updateNanos = _updateNanos;
+				event.setsScanned = _setsScanned;
+				event.membershipChecks = _membershipChecks;
+				event.objFn = _objFn;
+				event.coverage = _coverage;
+				event.commit();
+			}
+		}
 		
 		if (_coverage < _alpha) 
-			System.out.format("\nWARNING: Impossible to reach %.2f%% coverage level.\n", 100*_alpha);
-		System.out.println("Done.");
+			_listener.coverageNotReached(this, _alpha);
+		_listener.solveFinished(this, _metrics);
+	}
+	
+	private void resetMetrics() {
+		_iterations = 0;
+		_setupNanos = _selectNanos = _updateNanos = _maxIterNanos = 0;
+		Arrays.fill(_iterHist, 0);
+		_setsScanned = _membershipChecks = 0;
+	}
+	
+	/** Count work for the metrics: sets looked at and uncovered-element lookups made.  Called by
+	 *  the heuristics from the solving thread only (add up locally inside loops, then call once).
+	 */
+	
+	protected final void countScan(long sets, long membershipChecks) {
+		_setsScanned += sets;
+		_membershipChecks += membershipChecks;
+	}
+	
+	/** Whether the sets picked, and their order, are the same at every alpha (alpha then only
+	 *  decides when solve() stops), so that a prefix of a longer run is the result of a shorter
+	 *  one.  Solvers whose search looks at the coverage target (or at time) return false; their
+	 *  results are never read off a trajectory or a cache.
+	 */
+	
+	protected boolean picksIndependentOfAlpha() {
+		return true;
+	}
+	
+	/** Run the greedy to full coverage once and keep its trajectory, so that results for any
+	 *  coverage level can be read off it (see solveFromTrajectory()).  The solver is left with
+	 *  the result for its own alpha, as if solve() had been called.  For a solver whose picks
+	 *  depend on alpha this is just solve() at its alpha.
+	 */
+	
+	public Trajectory solveTrajectory() {
+		if (!picksIndependentOfAlpha()) {
+			solve();
+			return _trajectory;
+		}
+		double alpha = _alpha;
+		_alpha = 1.0;
+		solve();
+		_alpha = alpha;
+		applyTrajectory();
+		return _trajectory;
+	}
+	
+	/** Same result as solve() for the current alpha, but taken from the trajectory of an earlier
+	 *  solveTrajectory() on this model when there is one, which costs a binary search instead of
+	 *  a solve.  Nothing is printed while the trajectory is reused.  Solvers whose picks depend
+	 *  on alpha always solve().
+	 */
+	
+	public void solveFromTrajectory() {
+		if (!picksIndependentOfAlpha()) {
+			solve();
+			return;
+		}
+		if (_trajectory == null || !_trajectory.isFor(_model.freeze()) || !_trajectory.answers(_alpha)) {
+			solveTrajectory();
+			return;
+		}
+		applyTrajectory();
+		if (_coverage < _alpha) 
+			_listener.coverageNotReached(this, _alpha);
+	}
+	
+	private void applyTrajectory() { //results of solve() at _alpha, from _trajectory
+		_compiled = _model.freeze();
+		_solnSets = _trajectory.getSolnSets(_alpha);
+		_objFn = _trajectory.getObjFn(_alpha);
+		_coverage = _trajectory.getCoverage(_alpha);
+		_compTime = _trajectory.getCompTime(_alpha);
 	}
 	
 	/** Returns the next best set to add to the solution according to the heuristic being used.
@@ -128,6 +314,94 @@ public abstract class GreedySolver {
 	 */
 	
 	public abstract ElementSet nextBestSet(); // Abstract b/c it must be implemented by subclasses
+
+	/** Called once per solve() after _uncElements holds the whole universe (and _compiled is
+	 *  set) and before the first nextBestSet().  Heuristics that keep their own selection structures (heaps,
+	 *  counters, ...) build them here; the default does nothing.
+	 */
+
+	protected void initSelection() { }
+
+	/** Called by solve() for every element that the newly selected set covers for the first
+	 *  time (after it has been removed from _uncElements).  The default does nothing.
+	 */
+
+	protected void elementCovered(int element) { }
+
+	/** Score of a set for the parallel scan (lower is better).  A set can only be picked if its
+	 *  score is below Double.MAX_VALUE (so NaN and infinity mean "covers nothing useful"), and
+	 *  among equal scores the lowest set ID wins -- the same rules the sequential scans follow.
+	 *  Must only read solver state, since it runs on several threads at once.  Solvers that
+	 *  implement it also override supportsParallel().
+	 */
+
+	protected double score(ElementSet es) {
+		throw new UnsupportedOperationException("'" + getName() + "' has no parallel scan");
+	}
+
+	/** Whether score() is implemented, so that setParallel(true) is allowed.
+	 */
+
+	public boolean supportsParallel() {
+		return false;
+	}
+
+	/** Parallel version of the brute-force scan: the sets are split into chunks that are scored
+	 *  on the common fork-join pool, and the chunk winners are combined with the same tie-break,
+	 *  so the result is the set the sequential nextBestSet() would have returned.
+	 */
+
+	protected ElementSet parallelBestSet() {
+		int numS = _compiled.getNumS();
+		int chunk = Math.max(256, numS / (8 * ForkJoinPool.getCommonPoolParallelism()));
+		int best = ForkJoinPool.commonPool().invoke(new ScanTask(0, numS, chunk));
+		countScan(numS, 0); //lookups happen on the pool threads and are not counted
+
+		return best < 0 ? null : _compiled.getSet(best);
+	}
+
+	private class ScanTask extends RecursiveTask<Integer> { //index of the best set in [from, to), or -1
+
+		private static final long serialVersionUID = 1L;
+
+		private final int _from, _to, _chunk;
+		private double _bestScore = Double.MAX_VALUE;
+
+		ScanTask(int from, int to, int chunk) {
+			_from = from;
+			_to = to;
+			_chunk = chunk;
+		}
+
+		@Override
+		protected Integer compute() {
+			if (_to - _from <= _chunk) {
+				int best = -1;
+				for (int i = _from; i < _to; i++) {
+					double s = score(_compiled.getSet(i));
+					if (s < _bestScore) { //strict, so the first (lowest ID) set keeps a tie
+						_bestScore = s;
+						best = i;
+					}
+				}
+				return best;
+			}
+
+			int mid = (_from + _to) >>> 1;
+			ScanTask left = new ScanTask(_from, mid, _chunk);
+			ScanTask right = new ScanTask(mid, _to, _chunk);
+			right.fork();
+			int l = left.compute();
+			int r = right.join();
+
+			if (r >= 0 && (l < 0 || right._bestScore < left._bestScore)) { //left wins ties: lower IDs
+				_bestScore = right._bestScore;
+				return r;
+			}
+			_bestScore = left._bestScore;
+			return l;
+		}
+	}
 	
 	/** Print the solution
 	 * 
@@ -137,6 +411,8 @@ public abstract class GreedySolver {
 		System.out.println("\n'" + getName() + "' results:");
 		System.out.format("'" + getName() + "'   Time to solve: %dms\n", _compTime);
 		System.out.format("'" + getName() + "'   Objective function value: %.2f\n", _objFn);
+		if (!Double.isNaN(_lowerBound))
+			System.out.format("'" + getName() + "'   Lower bound: %.2f (gap at most %.2f%%)\n", _lowerBound, 100*getGap());
 		System.out.format("'" + getName() + "'   Coverage level: %.2f%% (%.2f%% minimum)\n", 100*_coverage, 100*_alpha);
 		System.out.format("'" + getName() + "'   Number of sets selected: %d\n", _solnSets.size());
 		System.out.format("'" + getName() + "'   Sets selected: ");
@@ -0,0 +1,594 @@
+/**
+ *
+ */
+package solver;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import util.CSRStorage;
+import util.ElementSet;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Chvatal's greedy (cheapest cost per newly covered element) whose solution can be repaired
+ * after the model changes, instead of solving again.  solve() works as in ChvatalSolver (with
+ * the same picks); afterwards change the model through addSet(), removeSet() and updateCost()
+ * here, and each of them updates the model and then repairs the solution:
+ *
+ *  - the picks a change affects are dropped: a removed set, or a picked set that got more
+ *    expensive (it has to win its elements back at its new price)
+ *  - the elements they leave uncovered (and any new elements) are covered again by the greedy
+ *    rule, as long as the coverage level asks for it
+ *  - picks that the new ones made redundant are dropped, most expensive first
+ *  - a set that was added or got cheaper is tried in place of the picks it overlaps, first as a
+ *    single swap (if the picks it makes redundant cost more), then by covering their elements
+ *    again around it; either is kept only if the solution gets cheaper
+ *
+ * Below full coverage, "redundant" also takes in picks whose own elements the coverage level
+ * can do without.  Since a repair only looks at what a change touches, a change whose repaired
+ * solution costs more than (1 + maxDrift) times the last full solve solves from scratch instead
+ * (setMaxDrift()).
+ *
+ * For this the solver keeps, per set, the number of its elements no picked set covers, and per
+ * element the number of picked sets covering it, with its own element -> sets index; all of it
+ * is keyed by storage index and dense element ID, which never change.  A repair therefore only
+ * touches the sets that share an element with the change.  If the model is changed behind the
+ * solver's back (or it was never solved), the next change falls back to a full solve().
+ *
+ */
+
+public class IncrementalSolver extends GreedySolver {
+
+	private CSRStorage _storage;
+	private int _modCount = -1;        //model's mod count the state below belongs to (-1: no state)
+	private int _numE;
+
+	//per set (storage index)
+	private int[] _unc = new int[0];   //elements of the set that no picked set covers
+	private boolean[] _inSoln = new boolean[0];
+	private boolean[] _live = new boolean[0];
+	private boolean[] _mark = new boolean[0]; //scratch flags, all false between calls
+
+	//per element (dense ID)
+	private int[] _coverCount = new int[0];  //picked sets covering the element
+	private int[][] _setsOf = new int[0][];  //storage indexes of the sets holding it (removed sets are skipped)
+	private int[] _setsOfLen = new int[0];
+
+	private PriorityQueue<Entry> _heap;      //(ratio, set ID) lower bounds, refreshed when popped
+	private Object _soln;                    //the _solnSets the state above describes
+
+	private double _maxDrift = 0.5;          //see setMaxDrift()
+	private double _solvedCost = Double.NaN; //cost of the last full solve()
+	private int _numResolves;
+	private List<Integer> _undo;             //moves of tryRegreedy() so far: index picked, ~index dropped (null: not recording)
+
+	public IncrementalSolver() {
+		_name = "Incremental"; //name changes for each class, set name for the solver here (shown when program is run)
+	}
+
+	/**
+	 * Repairs only look at what a change touches, so over many changes the solution can drift
+	 * away from what a fresh solve would give.  Once a repaired solution costs more than
+	 * (1 + maxDrift) times the last full solve(), the change solves from scratch instead.
+	 * Infinity: never.
+	 */
+
+	public void setMaxDrift(double maxDrift) { _maxDrift = maxDrift; }
+	public double getMaxDrift() { return _maxDrift; }
+	public int getNumResolves() { return _numResolves; } //changes that fell back to solve() for drift
+
+	@Override
+	public void solve() {
+		super.solve();
+		_solvedCost = _objFn;
+	}
+
+	@Override
+	protected void initSelection() {
+		_storage = _model.getStorage();
+		int numS = _storage.getNumS();
+		_numE = _compiled.getNumE();
+		_unc = new int[numS];
+		_inSoln = new boolean[numS];
+		_live = new boolean[numS];
+		_mark = new boolean[numS];
+		_coverCount = new int[_numE];
+		_setsOf = new int[_numE][];
+		_setsOfLen = new int[_numE];
+		_heap = new PriorityQueue<Entry>(Math.max(1, _compiled.getNumS()));
+
+		for (int e = 0; e < _numE; e++) {
+			int len = _compiled.setsEnd(e) - _compiled.setsStart(e);
+			_setsOf[e] = new int[Math.max(2, len)];
+			for (int p = _compiled.setsStart(e); p < _compiled.setsEnd(e); p++) {
+				_setsOf[e][_setsOfLen[e]++] = _compiled.getSet(_compiled.setAt(p)).getIndex();
+			}
+		}
+		for (int r = 0; r < _compiled.getNumS(); r++) {
+			int i = _compiled.getSet(r).getIndex();
+			_live[i] = true;
+			_unc[i] = _compiled.getSize(r);
+			offer(i);
+		}
+		_modCount = _model.getModCount();
+		_soln = _solnSets;
+	}
+
+	@Override
+	protected void elementCovered(int element) {
+		for (int k = 0; k < _setsOfLen[element]; k++) {
+			_unc[_setsOf[element][k]]--;
+		}
+	}
+
+	/**
+	 * Override nextBestSet
+	 */
+
+	@Override
+	public ElementSet nextBestSet() {
+		int best = pollBest();
+		if (best < 0) {
+			return null;
+		}
+
+		//solve() adds the set right after this; keep the cover counts in step with it
+		_inSoln[best] = true;
+		for (int p = _storage.start(best); p < _storage.end(best); p++) {
+			_coverCount[_storage.element(p)]++;
+		}
+
+		return new ElementSet(_storage, best);
+	}
+
+	/**
+	 * Add a set to the model and repair.  Returns false (and changes nothing) if the ID is taken.
+	 */
+
+	public boolean addSet(int ID, double cost, Collection<Integer> elements) {
+		int[] arr = ElementSet.toArray(elements);
+		return addSet(ID, cost, arr, 0, arr.length);
+	}
+
+	public boolean addSet(int ID, double cost, int[] elements, int from, int to) {
+		if (!prepare()) {
+			boolean taken = _model.getStorage().indexOf(ID) >= 0;
+			_model.addSetToCover(ID, cost, elements, from, to);
+			solve();
+			return !taken;
+		}
+
+		long start = System.currentTimeMillis();
+		int numS = _storage.getNumS();
+		_model.addSetToCover(ID, cost, elements, from, to);
+		if (_storage.getNumS() == numS) {
+			return false; //repeated ID, ignored by the model
+		}
+		grow();
+
+		int index = numS;
+		_live[index] = true;
+		for (int p = _storage.start(index); p < _storage.end(index); p++) {
+			int e = _storage.element(p);
+			addSetOf(e, index);
+			if (_coverCount[e] == 0) {
+				_unc[index]++;
+			}
+		}
+		offer(index);
+
+		repair(start, index);
+		return true;
+	}
+
+	/**
+	 * Remove a set from the model and repair.  Returns false if there is no set with this ID.
+	 */
+
+	public boolean removeSet(int ID) {
+		if (!prepare()) {
+			boolean removed = _model.removeSet(ID);
+			solve();
+			return removed;
+		}
+
+		long start = System.currentTimeMillis();
+		int index = _storage.indexOf(ID);
+		if (index < 0) {
+			return false;
+		}
+		if (_inSoln[index]) {
+			drop(index);
+		}
+		_live[index] = false;
+		_model.removeSet(ID);
+
+		repair(start, -1);
+		return true;
+	}
+
+	/**
+	 * Change the cost of a set and repair.  Returns false if there is no set with this ID.
+	 */
+
+	public boolean updateCost(int ID, double cost) {
+		if (!prepare()) {
+			boolean updated = _model.updateCost(ID, cost);
+			solve();
+			return updated;
+		}
+
+		long start = System.currentTimeMillis();
+		int index = _storage.indexOf(ID);
+		if (index < 0) {
+			return false;
+		}
+		double old = _storage.getCost(index);
+		if (_inSoln[index] && cost > old) {
+			drop(index); //must win its elements back at the new price
+		}
+		else if (_inSoln[index]) {
+			_objFn += cost - old;
+		}
+		_model.updateCost(ID, cost);
+		if (cost < old) {
+			offer(index); //its key is now above its ratio; a fresh one keeps the heap's keys lower bounds
+		}
+
+		repair(start, cost < old ? index : -1);
+		return true;
+	}
+
+	/**
+	 * Does the cached state belong to the model and solution as they are now?  If not (model
+	 * changed elsewhere, a parallel solve, a solution taken from a trajectory) the caller changes
+	 * the model and solves from scratch.
+	 */
+
+	private boolean prepare() {
+		return _storage == _model.getStorage() && _modCount == _model.getModCount() && _soln == _solnSets;
+	}
+
+	/**
+	 * Cover what the coverage level asks for again with the greedy rule, then drop picks made
+	 * redundant, then try the set that was added or got cheaper (changed, -1 if none) in place of
+	 * the picks it overlaps.
+	 */
+
+	private void repair(long start, int changed) {
+		_numE = _storage.getNumE();
+		prune(cover());
+		if (changed >= 0) {
+			trySwap(changed);
+			tryRegreedy(changed);
+		}
+
+		_modCount = _model.getModCount();
+		_compiled = null; //stale; the next solve() freezes the model again
+		_coverage = (double) (_numE - _uncElements.cardinality()) / (double) _numE; //same formula as solve()
+		_trajectory = null; //describes the model before the change
+		if (_objFn > (1 + _maxDrift) * _solvedCost) {
+			_numResolves++;
+			solve();
+		}
+		_compTime = System.currentTimeMillis() - start;
+	}
+
+	/**
+	 * Drop picks that only cover elements other picks cover too, or (below full coverage) whose
+	 * own elements the coverage level can do without: the picks sharing an element with a new
+	 * pick (all picks when there is slack), most expensive first.
+	 */
+
+	private void prune(List<Integer> picked) {
+		if (picked.isEmpty()) {
+			return;
+		}
+		int slack = slack();
+		for (int t : candidates(picked, slack)) {
+			int only = onlyCoveredBy(t);
+			if (only <= Math.max(0, slack)) { //fully covered elsewhere, or fits in the slack
+				drop(t);
+				slack -= only;
+			}
+		}
+	}
+
+	/**
+	 * A set that was added or got cheaper can beat picks that were made without it, which the
+	 * greedy repair never revisits while their elements stay covered.  Take the set if the picks
+	 * it lets go (checked most expensive first, as prune() does) cost more than it does, the same
+	 * move PostOptimizer makes.
+	 */
+
+	private void trySwap(int index) {
+		if (!_live[index] || _inSoln[index]) {
+			return;
+		}
+		int slack = slack();
+		for (int p = _storage.start(index); p < _storage.end(index); p++) {
+			if (_coverCount[_storage.element(p)]++ == 0) { //as if it were picked
+				slack++;
+			}
+		}
+
+		List<Integer> out = new ArrayList<Integer>();
+		double saved = 0;
+		for (int t : candidates(Collections.singletonList(index), slack)) {
+			int only = onlyCoveredBy(t);
+			if (only <= Math.max(0, slack)) { //fully covered elsewhere, or fits in the slack
+				for (int p = _storage.start(t); p < _storage.end(t); p++) {
+					_coverCount[_storage.element(p)]--;
+				}
+				slack -= only;
+				out.add(t);
+				saved += _storage.getCost(t);
+			}
+		}
+
+		for (int t : out) { //put the counts back, then make the move for real if it pays
+			for (int p = _storage.start(t); p < _storage.end(t); p++) {
+				_coverCount[_storage.element(p)]++;
+			}
+		}
+		for (int p = _storage.start(index); p < _storage.end(index); p++) {
+			_coverCount[_storage.element(p)]--;
+		}
+		if (!(saved > _storage.getCost(index))) {
+			return;
+		}
+
+		pick(index);
+		for (int t : out) { //same order as above, so the same elements end up uncovered
+			drop(t);
+		}
+	}
+
+	/**
+	 * A wider move around the set that was added or got cheaper: take it, drop every other pick
+	 * sharing an element with it, cover again with the greedy rule and prune.  This finds the
+	 * exchanges of several sets a single swap misses (the new set making a pick worse than some
+	 * set that was not picked).  Kept only if the solution got cheaper; otherwise the old picks
+	 * are restored.
+	 */
+
+	private void tryRegreedy(int index) {
+		if (!_live[index]) {
+			return;
+		}
+		List<Integer> sharing = candidates(Collections.singletonList(index), 0);
+		sharing.remove(Integer.valueOf(index));
+		if (sharing.isEmpty() && _inSoln[index]) {
+			return; //nothing to exchange
+		}
+		double before = _objFn;
+		_undo = new ArrayList<Integer>();
+
+		if (!_inSoln[index]) {
+			pick(index);
+		}
+		for (int t : sharing) {
+			drop(t);
+		}
+		List<Integer> picked = cover();
+		picked.add(index);
+		prune(picked);
+
+		List<Integer> undo = _undo;
+		_undo = null;
+		if (_objFn < before - 1e-9) {
+			return;
+		}
+		for (int k = undo.size() - 1; k >= 0; k--) { //no gain: take the moves back, last first
+			int t = undo.get(k);
+			if (t >= 0) {
+				drop(t);
+			}
+			else {
+				pick(~t);
+			}
+		}
+		_objFn = before; //not the sum of the moves, which may round differently
+	}
+
+	/**
+	 * Cover with the greedy rule until the coverage level is reached (or nothing adds coverage);
+	 * returns the picks made.
+	 */
+
+	private List<Integer> cover() {
+		int leeway = _numE - (int)Math.ceil(_alpha * _numE); //same as solve()
+		List<Integer> picked = new ArrayList<Integer>();
+		while (_uncElements.cardinality() > leeway) {
+			int best = pollBest();
+			if (best < 0) {
+				break;
+			}
+			pick(best);
+			picked.add(best);
+		}
+		return picked;
+	}
+
+	private void pick(int index) { //add to the solution; the inverse of drop()
+		if (_undo != null) {
+			_undo.add(index);
+		}
+		_inSoln[index] = true;
+		for (int p = _storage.start(index); p < _storage.end(index); p++) {
+			int e = _storage.element(p);
+			_coverCount[e]++;
+			if (_uncElements.remove(e)) {
+				elementCovered(e);
+			}
+		}
+		_solnSets.add(new ElementSet(_storage, index));
+		_objFn += _storage.getCost(index);
+	}
+
+	private int slack() { //covered elements beyond what the coverage level asks for (negative if short, e.g. elements no set holds)
+		int covered = _numE - _uncElements.cardinality();
+		return covered - (int)Math.ceil(_alpha * _numE);
+	}
+
+	private int onlyCoveredBy(int t) { //elements of pick t no other pick covers
+		int only = 0;
+		for (int p = _storage.start(t); p < _storage.end(t); p++) {
+			if (_coverCount[_storage.element(p)] == 1) {
+				only++;
+			}
+		}
+		return only;
+	}
+
+	/**
+	 * Picks to try dropping, most expensive first: those sharing an element with one of the
+	 * given sets, or every pick when there is slack (any of them might fit in it).
+	 */
+
+	private List<Integer> candidates(List<Integer> sets, int slack) {
+		List<Integer> candidates = new ArrayList<Integer>();
+		if (slack > 0) {
+			for (ElementSet es : _solnSets) {
+				candidates.add(es.getIndex());
+			}
+		}
+		else {
+			for (int s : sets) {
+				for (int p = _storage.start(s); p < _storage.end(s); p++) {
+					int e = _storage.element(p);
+					for (int k = 0; k < _setsOfLen[e]; k++) {
+						int t = _setsOf[e][k];
+						if (_inSoln[t] && _live[t] && !_mark[t]) {
+							_mark[t] = true;
+							candidates.add(t);
+						}
+					}
+				}
+			}
+			for (int t : candidates) {
+				_mark[t] = false;
+			}
+		}
+		candidates.sort((a, b) -> {
+			int c = Double.compare(_storage.getCost(b), _storage.getCost(a));
+			return c != 0 ? c : Integer.compare(_storage.getSetID(b), _storage.getSetID(a));
+		});
+		return candidates;
+	}
+
+	private void drop(int index) { //take a pick out; elements only it covered become uncovered
+		if (_undo != null) {
+			_undo.add(~index);
+		}
+		List<Integer> touched = new ArrayList<Integer>();
+		_inSoln[index] = false;
+		_solnSets.remove(new ElementSet(_storage, index)); //TreeSet finds it by set ID
+		_objFn -= _storage.getCost(index);
+
+		for (int p = _storage.start(index); p < _storage.end(index); p++) {
+			int e = _storage.element(p);
+			if (--_coverCount[e] == 0) {
+				_uncElements.add(e);
+				for (int k = 0; k < _setsOfLen[e]; k++) {
+					int t = _setsOf[e][k];
+					_unc[t]++;
+					if (!_mark[t]) {
+						_mark[t] = true;
+						touched.add(t);
+					}
+				}
+			}
+		}
+		for (int t : touched) { //their ratio went down, so their keys are no longer lower bounds
+			_mark[t] = false;
+			offer(t);
+		}
+	}
+
+	private void offer(int index) {
+		if (_live[index] && !_inSoln[index] && _unc[index] > 0) {
+			double ratio = _storage.getCost(index) / _unc[index];
+			if (ratio < Double.MAX_VALUE) { //same test as ChvatalSolver: NaN and infinity are never picked
+				_heap.add(new Entry(index, _storage.getSetID(index), ratio));
+			}
+		}
+	}
+
+	private int pollBest() { //lowest (ratio, set ID), or -1; same lazy scheme as ChvatalSolver's LAZY mode
+		while (!_heap.isEmpty()) {
+			Entry top = _heap.poll();
+			int i = top._index;
+			if (!_live[i] || _inSoln[i] || _unc[i] == 0) {
+				continue; //removed, picked, or covers nothing any more
+			}
+			double ratio = _storage.getCost(i) / _unc[i];
+			if (!(ratio < Double.MAX_VALUE)) {
+				continue;
+			}
+			if (ratio > top._ratio) { //key was stale: push the real ratio back
+				top._ratio = ratio;
+				Entry next = _heap.peek();
+				if (next != null && top.compareTo(next) > 0) {
+					_heap.add(top);
+					continue;
+				}
+			}
+			return i;
+		}
+		return -1;
+	}
+
+	private void grow() { //make room for sets and elements the model gained
+		int numS = _storage.getNumS();
+		if (numS > _unc.length) {
+			int cap = Math.max(numS, _unc.length * 2);
+			_unc = Arrays.copyOf(_unc, cap);
+			_inSoln = Arrays.copyOf(_inSoln, cap);
+			_live = Arrays.copyOf(_live, cap);
+			_mark = Arrays.copyOf(_mark, cap);
+		}
+		int numE = _storage.getNumE();
+		if (numE > _coverCount.length) {
+			int cap = Math.max(numE, _coverCount.length * 2);
+			_coverCount = Arrays.copyOf(_coverCount, cap);
+			_setsOf = Arrays.copyOf(_setsOf, cap);
+			_setsOfLen = Arrays.copyOf(_setsOfLen, cap);
+		}
+		for (int e = _numE; e < numE; e++) { //new elements start uncovered
+			_setsOf[e] = new int[2];
+			_uncElements.add(e);
+		}
+		_numE = numE;
+	}
+
+	private void addSetOf(int e, int index) {
+		if (_setsOfLen[e] == _setsOf[e].length) {
+			_setsOf[e] = Arrays.copyOf(_setsOf[e], _setsOfLen[e] * 2);
+		}
+		_setsOf[e][_setsOfLen[e]++] = index;
+	}
+
+	private static class Entry implements Comparable<Entry> {
+
+		private final int _index;
+		private final int _setID;
+		private double _ratio;
+
+		Entry(int index, int setID, double ratio) {
+			_index = index;
+			_setID = setID;
+			_ratio = ratio;
+		}
+
+		@Override
+		public int compareTo(Entry o) {
+			int c = Double.compare(_ratio, o._ratio);
+			return c != 0 ? c : Integer.compare(_setID, o._setID);
+		}
+	}
+}
@@ -0,0 +1,345 @@
+/**
+ *
+ */
+package solver;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import model.CompiledModel;
+import model.SCPModel;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Lower bound on the optimal cost at a coverage level, by Lagrangian relaxation solved with the
+ * subgradient method, so a greedy objective can be reported with its distance from optimal and
+ * a search can stop once that distance is small.
+ *
+ * The partial cover problem (cover need = ceil(alpha * n) elements) is relaxed by moving the
+ * constraints "element e counts as covered only if a chosen set holds it" into the objective
+ * with multipliers u_e >= 0.  For any u the relaxed problem splits and is solved exactly: a set
+ * is taken when its reduced cost c_j - sum of u_e over its elements is negative, and the need
+ * elements with the smallest u_e are counted as covered, so
+ *
+ *   L(u) = sum_j min(0, reduced cost of j) + sum of the need smallest u_e
+ *
+ * is a lower bound for every u (elements no set holds are never counted).  compute() moves u
+ * along the subgradient (counted minus covering sets, per element) with Polyak steps towards an
+ * upper bound, halving the step factor when the bound stops improving, and keeps the best u.
+ * Each iteration is two passes over the compiled model (reduced costs by set, subgradient by
+ * element through its element -> sets index) run as parallel streams on the pool.
+ *
+ * Reduced costs also prune: a cover that holds set j costs at least bound + reduced cost of j,
+ * so when that exceeds the cost of a known solution, j is in no better one (prune()).
+ *
+ */
+
+public class LagrangianBound {
+
+	private final CompiledModel _cm;
+	private ForkJoinPool _pool = ForkJoinPool.commonPool();
+	private int _maxIterations = 1000;
+	private double _tolerance;        //stop once (upper - bound) / upper is at most this
+	private long _timeLimit = Long.MAX_VALUE; //ms
+	private volatile boolean _cancelled;
+
+	// Result of the last compute()
+	private double _bound;
+	private double[] _u;              //multipliers of the best bound, by dense element ID
+	private double[] _reduced;        //reduced costs at those multipliers, by rank
+	private int _numIterations;
+	private long _compTime;
+
+	// Working arrays of compute()
+	private double[] _cur, _rc, _g, _scratch;
+	private boolean[] _y;
+	private byte[] _taken;            //_rc < 0, an eighth of the memory for the subgradient pass to read
+
+	public LagrangianBound(CompiledModel model) {
+		_cm = model;
+	}
+
+	public LagrangianBound(SCPModel model) {
+		this(model.freeze());
+	}
+
+	public void setThreads(int threads) { _pool = SharedPools.of(threads); } //default: the common pool; AnytimeSolver makes a bound per solve, so pools are shared
+	public void setMaxIterations(int iterations) { _maxIterations = iterations; }
+	public void setTolerance(double gap) { _tolerance = gap; } //relative gap to the upper bound at which to stop early
+	public void setTimeLimit(long ms) { _timeLimit = ms; }
+
+	public void cancel() { _cancelled = true; } //from another thread: compute() returns its best bound so far
+
+	public double getBound() { return _bound; }
+	public double[] getMultipliers() { return _u.clone(); }
+	public double[] getReducedCosts() { return _reduced.clone(); } //by rank (CompiledModel numbering)
+	public double getReducedCost(int rank) { return _reduced[rank]; }
+	public int getNumIterations() { return _numIterations; }
+	public long getCompTime() { return _compTime; }
+
+	/**
+	 * Relative gap of a solution cost over the bound: 0 when the bound proves it optimal.
+	 */
+
+	public double gap(double objFn) {
+		return gap(objFn, _bound);
+	}
+
+	static double gap(double objFn, double bound) {
+		if (!(objFn > bound)) {
+			return 0;
+		}
+		return (objFn - bound) / Math.abs(objFn);
+	}
+
+	/**
+	 * Run the subgradient method for covering ceil(alpha * n) elements.  upper is the cost of
+	 * any solution at that level (e.g. a greedy objective); the steps aim at it and it is the
+	 * reference of the tolerance.  Returns the bound.
+	 */
+
+	public double compute(double alpha, double upper) {
+		long start = System.currentTimeMillis();
+		long deadline = _timeLimit == Long.MAX_VALUE ? Long.MAX_VALUE : start + _timeLimit;
+		_cancelled = false;
+		int n = _cm.getNumE();
+		int m = _cm.getNumS();
+
+		int coverable = (int) IntStream.range(0, n).filter(e -> _cm.getFrequency(e) > 0).count(); //elements some set holds
+		int need = Math.min((int)Math.ceil(alpha * n), coverable); //what solve() ends up covering
+
+		// Start from every element's cheapest price per element: u_e = min over its sets of c_j / |j|
+		_cur = new double[n];
+		for (int e = 0; e < n; e++) {
+			double best = Double.POSITIVE_INFINITY;
+			for (int p = _cm.setsStart(e); p < _cm.setsEnd(e); p++) {
+				int r = _cm.setAt(p);
+				best = Math.min(best, _cm.getCost(r) / _cm.getSize(r));
+			}
+			_cur[e] = best < Double.POSITIVE_INFINITY ? Math.max(0, best) : 0;
+		}
+		_rc = new double[m];
+		_g = new double[n];
+		_y = new boolean[n];
+		_taken = new byte[m];
+		_scratch = new double[coverable];
+
+		_bound = Double.NEGATIVE_INFINITY;
+		_u = _cur.clone();
+		_reduced = new double[m];
+		_numIterations = 0;
+		if (!(upper < Double.POSITIVE_INFINITY)) {
+			upper = crudeUpper(need);
+		}
+
+		double lambda = 2;
+		int sinceBest = 0;
+		while (_numIterations < _maxIterations && !_cancelled && System.currentTimeMillis() < deadline) {
+			_numIterations++;
+			double[] out = _pool.submit(() -> iterate(need, coverable)).join(); //{L(u), |g|^2}
+			double l = out[0];
+			boolean progress = l > _bound + 1e-6 * Math.max(1, Math.abs(_bound)); //tiny gains do not keep the step long
+			if (l > _bound) {
+				_bound = l;
+				System.arraycopy(_cur, 0, _u, 0, n);
+				System.arraycopy(_rc, 0, _reduced, 0, m);
+			}
+			if (progress) {
+				sinceBest = 0;
+			}
+			else if (++sinceBest == 20) {
+				lambda /= 2;
+				sinceBest = 0;
+			}
+
+			if (out[1] == 0 || lambda < 1e-4 || gap(upper) <= _tolerance) {
+				break; //the relaxed solution covers exactly (the bound is the optimum), no progress left, or close enough
+			}
+			double step = lambda * Math.max(upper - l, 1e-9 * Math.abs(upper)) / out[1];
+			_pool.submit(() -> IntStream.range(0, n).parallel().forEach(e -> _cur[e] = Math.max(0, _cur[e] + step * _g[e]))).join();
+		}
+
+		if (_bound == Double.NEGATIVE_INFINITY) { //stopped before the first iteration
+			_bound = _pool.submit(() -> iterate(need, coverable)).join()[0];
+			System.arraycopy(_rc, 0, _reduced, 0, m);
+		}
+		_cur = _rc = _g = _scratch = null;
+		_y = null;
+		_taken = null;
+		_compTime = System.currentTimeMillis() - start;
+		return _bound;
+	}
+
+	private double[] iterate(int need, int coverable) { //runs on _pool, so the parallel streams below use its threads
+		int n = _cm.getNumE();
+
+		// Reduced costs, and the sets part of L(u)
+		double sets = IntStream.range(0, _cm.getNumS()).parallel().mapToDouble(r -> {
+			double rc = _cm.getCost(r);
+			for (int p = _cm.start(r); p < _cm.end(r); p++) {
+				rc -= _cur[_cm.element(p)];
+			}
+			_rc[r] = rc;
+			_taken[r] = (byte)(rc < 0 ? 1 : 0);
+			return Math.min(0, rc);
+		}).sum();
+
+		// Elements counted as covered: the need smallest multipliers
+		double cut = Double.POSITIVE_INFINITY; //all coverable ones when need is all of them
+		int ties = 0;                          //elements at exactly the cut that are still counted
+		if (need < coverable) {
+			int k = 0;
+			for (int e = 0; e < n; e++) {
+				if (_cm.getFrequency(e) > 0) {
+					_scratch[k++] = _cur[e];
+				}
+			}
+			if (need > 0) {
+				cut = select(_scratch, coverable, need - 1);
+				int below = 0;
+				for (int i = 0; i < coverable; i++) {
+					if (_scratch[i] < cut) {
+						below++;
+					}
+				}
+				ties = need - below;
+			}
+			else {
+				cut = Double.NEGATIVE_INFINITY;
+			}
+		}
+		double elems = 0;
+		for (int e = 0; e < n; e++) {
+			boolean y = _cm.getFrequency(e) > 0 && (_cur[e] < cut || (_cur[e] == cut && ties-- > 0));
+			_y[e] = y;
+			if (y) {
+				elems += _cur[e];
+			}
+		}
+
+		// Subgradient: counted minus the number of taken sets holding the element
+		double norm = IntStream.range(0, n).parallel().mapToDouble(e -> {
+			int taken = 0;
+			for (int p = _cm.setsStart(e); p < _cm.setsEnd(e); p++) {
+				taken += _taken[_cm.setAt(p)];
+			}
+			double g = (_y[e] ? 1 : 0) - taken;
+			if (g < 0 && _cur[e] == 0) {
+				g = 0; //u_e cannot go below 0 anyway; leaving it out keeps the steps long
+			}
+			_g[e] = g;
+			return g * g;
+		}).sum();
+
+		return new double[] {sets + elems, norm};
+	}
+
+	/**
+	 * The k-th smallest of a[0..len-1] (quickselect; reorders a).
+	 */
+
+	private static double select(double[] a, int len, int k) {
+		int lo = 0, hi = len - 1;
+		while (lo < hi) {
+			double pivot = a[(lo + hi) >>> 1];
+			int i = lo, j = hi;
+			while (i <= j) {
+				while (a[i] < pivot) {
+					i++;
+				}
+				while (a[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					double t = a[i];
+					a[i++] = a[j];
+					a[j--] = t;
+				}
+			}
+			if (k <= j) {
+				hi = j;
+			}
+			else if (k >= i) {
+				lo = i;
+			}
+			else {
+				return a[k];
+			}
+		}
+		return a[k];
+	}
+
+	private double crudeUpper(int need) { //the need cheapest "cheapest set of an element" costs: each such choice of sets is a solution
+		double[] c = new double[_cm.getNumE()];
+		int k = 0;
+		for (int e = 0; e < c.length; e++) {
+			if (_cm.getFrequency(e) > 0) {
+				double best = Double.POSITIVE_INFINITY;
+				for (int p = _cm.setsStart(e); p < _cm.setsEnd(e); p++) {
+					best = Math.min(best, _cm.getCost(_cm.setAt(p)));
+				}
+				c[k++] = best;
+			}
+		}
+		Arrays.sort(c, 0, k);
+		double sum = 0;
+		for (int i = 0; i < need; i++) {
+			sum += c[i];
+		}
+		return sum;
+	}
+
+	/**
+	 * Ranks of the sets in no solution cheaper than upper (bound + reduced cost above it), from
+	 * the last compute().  A set is kept anyway when every other set holding one of its elements
+	 * goes, so the pruned model can still cover what the original could.
+	 */
+
+	public boolean[] prunable(double upper) {
+		int m = _cm.getNumS();
+		boolean[] out = new boolean[m];
+		for (int r = 0; r < m; r++) {
+			out[r] = _bound + _reduced[r] > upper + 1e-9 * Math.abs(upper);
+		}
+		for (int e = 0; e < _cm.getNumE(); e++) {
+			int keep = -1;
+			boolean alive = false;
+			for (int p = _cm.setsStart(e); p < _cm.setsEnd(e) && !alive; p++) {
+				int r = _cm.setAt(p);
+				alive = !out[r];
+				if (keep < 0 || _reduced[r] < _reduced[keep]) {
+					keep = r;
+				}
+			}
+			if (!alive && keep >= 0) {
+				out[keep] = false;
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Copy of the model without the prunable sets (same set IDs and elements, so its solutions
+	 * are solutions of the original).  model must be the model this bound was computed on.
+ * Elements that no set holds are not carried over.
+	 */
+
+	public SCPModel prune(SCPModel model, double upper) {
+		boolean[] out = prunable(upper);
+		SCPModel pruned = new SCPModel();
+		int[] orig = new int[16];
+		for (int r = 0; r < out.length; r++) { //rank order, so the copy numbers its elements in the same order
+			if (!out[r]) {
+				int len = _cm.getSize(r);
+				if (orig.length < len) {
+					orig = new int[Math.max(len, orig.length * 2)];
+				}
+				for (int i = 0; i < len; i++) {
+					orig[i] = _cm.origID(_cm.element(_cm.start(r) + i));
+				}
+				pruned.addSetToCover(_cm.getSetID(r), _cm.getCost(r), orig, 0, len);
+			}
+		}
+		return pruned;
+	}
+}
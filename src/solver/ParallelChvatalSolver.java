@@ -0,0 +1,187 @@
+/**
+ *
+ */
+package solver;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+import util.ElementSet;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Chvatal's heuristic in rounds, so that the scoring can use every core.  ChvatalSolver picks
+ * one set per iteration; here each round takes a whole batch:
+ *
+ *  1. the cost-coverage ratio of every live set is computed in parallel, and the best bucket is
+ *     the sets within a factor (1 + delta) of the smallest ratio, where (1 + delta)^2 = 1 + epsilon;
+ *  2. every candidate of the bucket gets a random priority, drawn afresh each round (as in Luby's
+ *     independent set algorithm), and claims its uncovered elements in parallel (an element goes
+ *     to the candidate with the best priority, by compare-and-set on a shared owner array);
+ *  3. a candidate that won at least 1 / (1 + delta) of its uncovered elements joins the batch.
+ *     The elements it won are covered by it alone, so its cost per newly covered element is
+ *     within (1 + delta)^2 = 1 + epsilon of the greedy choice, and the H(n) bound of Chvatal's
+ *     algorithm holds up to that factor.  The first candidate wins everything, so a round never
+ *     comes back empty.  With random priorities a constant fraction of the bucket is expected to
+ *     be settled (taken, or out of it) per round, so the number of rounds is polylogarithmic
+ *     rather than up to the bucket size, as a fixed order can make it.
+ *
+ * nextBestSet() hands out the batch in priority order and starts a new round when it runs out.
+ * solve() covers the elements as usual and stops at the coverage asked for, possibly in the
+ * middle of a batch.  The uncovered counts are kept up to date through elementCovered().  The
+ * priorities come from a hash of the seed, the round and the set, so the result depends on the
+ * seed but not on the number of threads.  With epsilon = 0 a batch is made of tied best sets
+ * that do not overlap, so Chvatal's bound holds exactly (the picks may come in a different order
+ * than ChvatalSolver's when there are ties).
+ *
+ */
+
+public class ParallelChvatalSolver extends GreedySolver {
+
+	private double _epsilon = 0.1;
+	private double _delta;             //per-step slack, (1 + _delta)^2 = 1 + _epsilon
+	private long _seed = 1;
+	private ForkJoinPool _pool = ForkJoinPool.commonPool();
+
+	private int[] _unc;                //uncovered elements per set rank
+	private boolean[] _isCovered;      //per dense element, kept by elementCovered()
+	private int[] _live;               //ranks that may still cover something (compacted every round)
+	private AtomicIntegerArray _owner; //per element: best priority that claimed it this round
+	private int[] _batch;
+	private int _batchSize, _next;
+	private int _numRounds;
+
+	public ParallelChvatalSolver() {
+		_name = "Parallel Chvatal"; //name changes for each class, set name for the solver here (shown when program is run)
+	}
+
+	public void setEpsilon(double epsilon) { _epsilon = Math.max(0, epsilon); }
+	public void setThreads(int threads) { _pool = SharedPools.of(threads); } //default: the common pool
+	public void setSeed(long seed) { _seed = seed; } //of the priorities
+	public double getEpsilon() { return _epsilon; }
+	public long getSeed() { return _seed; }
+	public int getNumRounds() { return _numRounds; } //rounds taken by the last solve()
+
+	@Override
+	public String getVariant() { return _name + " epsilon=" + _epsilon + " seed=" + _seed; }
+
+	@Override
+	protected void initSelection() {
+		_delta = Math.sqrt(1 + _epsilon) - 1;
+		int m = _compiled.getNumS();
+		int n = _compiled.getNumE();
+		_unc = new int[m];
+		for (int r = 0; r < m; r++) {
+			_unc[r] = _compiled.getSize(r); //every element starts uncovered
+		}
+		_isCovered = new boolean[n];
+		_live = IntStream.range(0, m).toArray();
+		_owner = new AtomicIntegerArray(n);
+		for (int e = 0; e < n; e++) {
+			_owner.set(e, Integer.MAX_VALUE);
+		}
+		_batch = new int[0];
+		_batchSize = 0;
+		_next = 0;
+		_numRounds = 0;
+	}
+
+	@Override
+	protected void elementCovered(int element) {
+		_isCovered[element] = true;
+		for (int p = _compiled.setsStart(element); p < _compiled.setsEnd(element); p++) {
+			_unc[_compiled.setAt(p)]--;
+		}
+	}
+
+	/**
+	 * Override nextBestSet: the next set of the current batch, after a new round if it is used up
+	 */
+
+	@Override
+	public ElementSet nextBestSet() {
+		if (_next == _batchSize) {
+			_pool.submit(this::round).join();
+			countScan(_live.length, 0); //the live sets were scored on the pool
+		}
+
+		return _next == _batchSize ? null : _compiled.getSet(_batch[_next++]);
+	}
+
+	private void round() { //runs on _pool, so the parallel streams below use its threads
+		_next = 0;
+		_batchSize = 0;
+
+		_live = Arrays.stream(_live).parallel().filter(r -> ratio(r) < Double.MAX_VALUE).toArray(); //same test as the scan
+		if (_live.length == 0) {
+			return; //nothing can add coverage
+		}
+		_numRounds++;
+
+		//1. the best bucket
+		double best = Arrays.stream(_live).parallel().mapToDouble(this::ratio).min().getAsDouble();
+		double limit = best * (1 + _delta);
+		Integer[] bucket = Arrays.stream(_live).parallel().filter(r -> ratio(r) <= limit).boxed().toArray(Integer[]::new);
+
+		//2. priorities and claims
+		long round = _numRounds;
+		Arrays.parallelSort(bucket, (a, b) -> {
+			int c = Long.compare(priority(round, a), priority(round, b));
+			return c != 0 ? c : Integer.compare(a, b);
+		});
+		IntStream.range(0, bucket.length).parallel().forEach(prio -> {
+			int r = bucket[prio];
+			for (int p = _compiled.start(r); p < _compiled.end(r); p++) {
+				int e = _compiled.element(p);
+				if (_isCovered[e]) {
+					continue;
+				}
+				int cur = _owner.get(e);
+				while (prio < cur && !_owner.compareAndSet(e, cur, prio)) {
+					cur = _owner.get(e);
+				}
+			}
+		});
+
+		//3. candidates that kept enough of their elements
+		boolean[] accepted = new boolean[bucket.length];
+		IntStream.range(0, bucket.length).parallel().forEach(prio -> {
+			int r = bucket[prio];
+			int won = 0;
+			for (int p = _compiled.start(r); p < _compiled.end(r); p++) {
+				int e = _compiled.element(p);
+				if (!_isCovered[e] && _owner.get(e) == prio) {
+					won++;
+				}
+			}
+			accepted[prio] = won > 0 && won * (1 + _delta) >= _unc[r];
+		});
+		IntStream.range(0, bucket.length).parallel().forEach(prio -> { //clear the claims for the next round
+			int r = bucket[prio];
+			for (int p = _compiled.start(r); p < _compiled.end(r); p++) {
+				_owner.set(_compiled.element(p), Integer.MAX_VALUE);
+			}
+		});
+
+		if (_batch.length < bucket.length) {
+			_batch = new int[bucket.length];
+		}
+		for (int prio = 0; prio < bucket.length; prio++) {
+			if (accepted[prio]) {
+				_batch[_batchSize++] = bucket[prio];
+			}
+		}
+	}
+
+	private long priority(long round, int r) { //random but reproducible: a hash of (seed, round, rank), as SplittableRandom mixes
+		long z = _seed * 0x9E3779B97F4A7C15L + round * 0xBF58476D1CE4E5B9L + r;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private double ratio(int r) { //cost-coverage ratio, as in ChvatalSolver (infinite or NaN when the set covers nothing)
+		return _compiled.getCost(r)/(double)_unc[r];
+	}
+}
@@ -0,0 +1,114 @@
+/**
+ *
+ */
+package solver;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import model.SCPModel;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Runs a list of solvers at the same time on one model, so comparing them takes about as long as
+ * the slowest one.  Every solver keeps its own state (_solnSets, _uncElements, ...), so they
+ * must be distinct instances; the model is only read, and its CompiledModel is built once
+ * before the solvers start and then shared by all of them.
+ *
+ * By default each solver gets a virtual thread when the JVM has them (Java 21+, found by
+ * reflection so the code still builds for Java 17); otherwise a fixed pool with one thread per
+ * processor is used.  Any other executor can be passed in.
+ *
+ */
+
+public class PortfolioRunner implements AutoCloseable {
+
+	private final ExecutorService _executor;
+	private final boolean _ownExecutor;  //created here, so close() shuts it down
+	private long _wallTime;              //ms taken by the last run()
+
+	public PortfolioRunner() {
+		this(defaultExecutor(), true);
+	}
+
+	public PortfolioRunner(ExecutorService executor) {
+		this(executor, false);
+	}
+
+	private PortfolioRunner(ExecutorService executor, boolean own) {
+		_executor = executor;
+		_ownExecutor = own;
+	}
+
+	private static ExecutorService defaultExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException e) { //no virtual threads in this JVM
+			return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		}
+	}
+
+	public long getWallTime() { return _wallTime; }
+
+	/**
+	 * Set the model and alpha of every solver and solve them concurrently.  Returns once all of
+	 * them are done; the results are then read from the solvers as after solve().  A solver that
+	 * throws makes run() throw the same exception (after the others have finished).
+	 */
+
+	public void run(List<GreedySolver> solvers, SCPModel model, double alpha) {
+		IdentityHashMap<GreedySolver, Boolean> seen = new IdentityHashMap<GreedySolver, Boolean>();
+		for (GreedySolver s : solvers) {
+			if (seen.put(s, Boolean.TRUE) != null) {
+				throw new IllegalArgumentException("'" + s.getName() + "' is in the portfolio twice; solvers hold per-run state");
+			}
+		}
+
+		long start = System.currentTimeMillis();
+		model.freeze(); //built once here instead of by whichever solver gets there first
+
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (GreedySolver s : solvers) {
+			s.setModel(model);
+			s.setMinCoverage(alpha);
+			futures.add(_executor.submit(s::solve));
+		}
+
+		RuntimeException failure = null;
+		for (Future<?> f : futures) {
+			try {
+				f.get();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				for (Future<?> g : futures) {
+					g.cancel(true);
+				}
+				throw new IllegalStateException("interrupted while waiting for the portfolio", e);
+			}
+			catch (ExecutionException e) {
+				if (failure == null) {
+					failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+							: new IllegalStateException(e.getCause());
+				}
+			}
+		}
+		_wallTime = System.currentTimeMillis() - start;
+
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	@Override
+	public void close() {
+		if (_ownExecutor) {
+			_executor.shutdown();
+		}
+	}
+}
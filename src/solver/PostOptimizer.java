@@ -0,0 +1,271 @@
+/**
+ *
+ */
+package solver;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import model.CompiledModel;
+import util.ElementSet;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Improves the solution a solver left after solve(), keeping at least ceil(alpha * n) elements
+ * covered.  Two steps, both working on a per-element count of the solution sets covering it:
+ *
+ *  1. redundant sets: the solution sets are visited from the most expensive down, and a set is
+ *     dropped if the elements only it covers fit in the coverage slack (none, at alpha = 1).
+ *     One pass over the elements of the solution.
+ *  2. local search until the time limit: a solution set s is swapped for an outside set t that
+ *     holds one of the elements only s covers, after which the solution sets overlapping t
+ *     that became redundant are dropped too.  So a swap trades one set for one cheaper set
+ *     (1-swap) or two or more sets for one (2-swap and up).  The cost change of a move is
+ *     found by applying it to the counts and undoing it, touching only the sets involved; the
+ *     best improving move for s is made, and passes repeat while some move improves.
+ *
+ */
+
+public class PostOptimizer {
+
+	private static final double EPS = 1e-9; //smaller cost changes are not improvements (rounding)
+
+	private long _timeLimit = 100;  //ms for the local search
+	private int _numRemoved;        //sets dropped by the last optimize(), in step 1 or after a swap
+	private int _numSwaps;
+	private double _before, _after;
+
+	private CompiledModel _cm;
+	private int[] _count;           //solution sets covering each element
+	private boolean[] _inSoln;
+	private boolean[] _isCandidate; //scratch flags (all false between uses)
+	private boolean[] _isOverlap;
+	private int _covered;           //elements with _count > 0
+	private int _need;
+	private long _deadline;         //System.nanoTime() at which the local search stops
+
+	public void setTimeLimit(long ms) { _timeLimit = ms; }
+	public long getTimeLimit() { return _timeLimit; }
+	public int getNumRemoved() { return _numRemoved; }
+	public int getNumSwaps() { return _numSwaps; }
+	public double getCostBefore() { return _before; }
+	public double getCostAfter() { return _after; }
+
+	/**
+	 * Optimize the solver's current solution in place: its solution sets, objective function
+	 * value and coverage are replaced by the improved ones.
+	 */
+
+	public void optimize(GreedySolver solver) {
+		_deadline = System.nanoTime() + _timeLimit * 1000000L;
+		_cm = solver._model.freeze();
+		int n = _cm.getNumE();
+		int m = _cm.getNumS();
+		_count = new int[n];
+		_inSoln = new boolean[m];
+		_isCandidate = new boolean[m];
+		_isOverlap = new boolean[m];
+		_covered = 0;
+		_need = (int)Math.ceil(solver.getMinCoverage() * n); //num_to_cover in solve()
+		_numRemoved = 0;
+		_numSwaps = 0;
+
+		List<Integer> soln = new ArrayList<Integer>();
+		for (ElementSet es : solver._solnSets) {
+			int r = _cm.rankOf(es);
+			if (r < 0) {
+				throw new IllegalStateException("'" + solver.getName() + "' holds a solution of a different model");
+			}
+			soln.add(r);
+			addSet(r);
+		}
+		_before = solver.getObjFn();
+		_need = Math.min(_need, _covered); //never ask for more than the greedy reached
+
+		//1. redundant sets, most expensive first
+		sortByCostDesc(soln);
+		for (int r : soln) {
+			if (_covered - loss(r) >= _need) {
+				removeSet(r);
+				_numRemoved++;
+			}
+		}
+
+		//2. swaps until nothing improves or time is up
+		boolean improved = true;
+		while (improved && System.nanoTime() < _deadline) {
+			improved = false;
+			soln = solution();
+			sortByCostDesc(soln);
+			for (int s : soln) {
+				if (System.nanoTime() >= _deadline) {
+					break;
+				}
+				if (_inSoln[s] && bestSwap(s)) {
+					improved = true;
+				}
+			}
+		}
+
+		//hand the result back to the solver
+		TreeSet<ElementSet> sets = new TreeSet<ElementSet>();
+		double cost = 0;
+		for (int r : solution()) {
+			sets.add(_cm.getSet(r));
+			cost += _cm.getCost(r);
+		}
+		solver._solnSets = sets;
+		solver._objFn = cost;
+		solver._trajectory = null; //records the greedy picks, not this solution
+		solver._coverage = (double) _covered / (double) n; //same formula as solve()
+		_after = cost;
+		_count = null;
+		_inSoln = null;
+		_isCandidate = null;
+		_isOverlap = null;
+	}
+
+	/**
+	 * Find the best move that takes s out, make it if it lowers the cost, and report whether it did.
+	 */
+
+	private boolean bestSwap(int s) {
+		int bestT = -1;
+		double bestDelta = -EPS;
+		List<Integer> freed = new ArrayList<Integer>();
+
+		List<Integer> candidates = new ArrayList<Integer>();
+		for (int p = _cm.start(s); p < _cm.end(s); p++) {
+			int e = _cm.element(p);
+			if (_count[e] != 1) {
+				continue; //covered by another set too: not what t has to replace
+			}
+			for (int q = _cm.setsStart(e); q < _cm.setsEnd(e); q++) {
+				int t = _cm.setAt(q);
+				if (!_inSoln[t] && !_isCandidate[t]) {
+					_isCandidate[t] = true;
+					candidates.add(t);
+				}
+			}
+		}
+		for (int t : candidates) {
+			_isCandidate[t] = false;
+		}
+
+		for (int k = 0; k < candidates.size() && ((k & 63) != 63 || System.nanoTime() < _deadline); k++) {
+			int t = candidates.get(k);
+			double delta = evaluate(s, t, null);
+			if (delta < bestDelta) {
+				bestDelta = delta;
+				bestT = t;
+			}
+		}
+		if (bestT < 0) {
+			return false;
+		}
+
+		evaluate(s, bestT, freed); //make the move for real
+		_numSwaps++;
+		_numRemoved += freed.size();
+		return true;
+	}
+
+	/**
+	 * Cost change of: take s out, put t in, drop the solution sets overlapping t that became
+	 * redundant (most expensive first).  Positive infinity if the coverage falls below the level
+	 * asked for.  The move is undone afterwards unless freed is given (then it receives the
+	 * dropped sets and the move stays).
+	 */
+
+	private double evaluate(int s, int t, List<Integer> freed) {
+		removeSet(s);
+		addSet(t);
+		if (_covered < _need) {
+			removeSet(t);
+			addSet(s);
+			return Double.POSITIVE_INFINITY;
+		}
+
+		List<Integer> overlap = new ArrayList<Integer>();
+		for (int p = _cm.start(t); p < _cm.end(t); p++) {
+			int e = _cm.element(p);
+			for (int q = _cm.setsStart(e); q < _cm.setsEnd(e); q++) {
+				int r = _cm.setAt(q);
+				if (_inSoln[r] && r != t && !_isOverlap[r]) {
+					_isOverlap[r] = true;
+					overlap.add(r);
+				}
+			}
+		}
+		for (int r : overlap) {
+			_isOverlap[r] = false;
+		}
+		sortByCostDesc(overlap);
+
+		double delta = _cm.getCost(t) - _cm.getCost(s);
+		List<Integer> dropped = new ArrayList<Integer>();
+		for (int r : overlap) {
+			if (_covered - loss(r) >= _need) {
+				removeSet(r);
+				dropped.add(r);
+				delta -= _cm.getCost(r);
+			}
+		}
+
+		if (freed != null) {
+			freed.addAll(dropped);
+			return delta;
+		}
+		for (int r : dropped) { //undo
+			addSet(r);
+		}
+		removeSet(t);
+		addSet(s);
+		return delta;
+	}
+
+	private int loss(int r) { //elements that would become uncovered without r
+		int loss = 0;
+		for (int p = _cm.start(r); p < _cm.end(r); p++) {
+			if (_count[_cm.element(p)] == 1) {
+				loss++;
+			}
+		}
+		return loss;
+	}
+
+	private void addSet(int r) {
+		_inSoln[r] = true;
+		for (int p = _cm.start(r); p < _cm.end(r); p++) {
+			if (_count[_cm.element(p)]++ == 0) {
+				_covered++;
+			}
+		}
+	}
+
+	private void removeSet(int r) {
+		_inSoln[r] = false;
+		for (int p = _cm.start(r); p < _cm.end(r); p++) {
+			if (--_count[_cm.element(p)] == 0) {
+				_covered--;
+			}
+		}
+	}
+
+	private List<Integer> solution() {
+		List<Integer> soln = new ArrayList<Integer>();
+		for (int r = 0; r < _inSoln.length; r++) {
+			if (_inSoln[r]) {
+				soln.add(r);
+			}
+		}
+		return soln;
+	}
+
+	private void sortByCostDesc(List<Integer> ranks) { //ties: higher rank first, so the result does not depend on the input order
+		ranks.sort((a, b) -> {
+			int c = Double.compare(_cm.getCost(b), _cm.getCost(a));
+			return c != 0 ? c : Integer.compare(b, a);
+		});
+	}
+}
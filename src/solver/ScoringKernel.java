@@ -0,0 +1,62 @@
+/**
+ * 
+ */
+package solver;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Computes popcount(set AND uncovered) for a block of sets stored as rows of a bit matrix,
+ * which is the whole work of a coverage or Chvatal scan once sets are bitmaps.
+ * 
+ * create() returns the SIMD kernel (VectorScoringKernel, built on the incubating
+ * jdk.incubator.vector module) when that module is available at run time, i.e. when the JVM
+ * was started with --add-modules jdk.incubator.vector, and the scalar kernel otherwise.
+ * -Dscp.kernel=scalar forces the scalar kernel.
+ *
+ */
+
+public abstract class ScoringKernel {
+	
+	/**
+	 * For every set r in [from, to), out[r] = number of bits set in both row r of setBits
+	 * (words setBits[r*words .. (r+1)*words-1]) and uncovered.
+	 */
+	
+	public abstract void countUncovered(long[] setBits, int words, long[] uncovered, int from, int to, int[] out);
+	
+	public abstract String getName();
+	
+	public static ScoringKernel create() {
+		if (!"scalar".equals(System.getProperty("scp.kernel"))) {
+			try {
+				return (ScoringKernel) Class.forName("solver.VectorScoringKernel").getDeclaredConstructor().newInstance();
+			}
+			catch (Throwable t) { //module not resolved (NoClassDefFoundError) or kernel unusable: fall back
+			}
+		}
+		return new ScalarScoringKernel();
+	}
+	
+	/**
+	 * Plain Long.bitCount loop (the JIT turns it into POPCNT where the CPU has it).
+	 */
+	
+	public static class ScalarScoringKernel extends ScoringKernel {
+		
+		@Override
+		public void countUncovered(long[] setBits, int words, long[] uncovered, int from, int to, int[] out) {
+			for (int r = from; r < to; r++) {
+				int base = r * words;
+				int count = 0;
+				for (int w = 0; w < words; w++) {
+					count += Long.bitCount(setBits[base + w] & uncovered[w]);
+				}
+				out[r] = count;
+			}
+		}
+		
+		@Override
+		public String getName() { return "scalar"; }
+	}
+}
@@ -0,0 +1,127 @@
+/**
+ *
+ */
+package solver;
+import java.util.SplittableRandom;
+import model.CompiledModel;
+import util.ElementSet;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Stochastic greedy ("lazier than lazy") for the SAMPLED modes of GreedyCoverageSolver and
+ * ChvatalSolver.  Each pick scores only a random sample of
+ *
+ *   s = (m / k) * ln(1 / epsilon)
+ *
+ * sets (m sets, k the number of picks expected) with the solver's own score() and keeps the
+ * best of the sample; for coverage this is within about epsilon of the greedy guarantee in
+ * expectation.  k defaults to ceil(n / average set size), the fewest picks a full cover can
+ * take.  It is taken from n and not alpha * n so the sample size, and with it the picks, are
+ * the same at every alpha: one trajectory (or cache entry) answers all coverage levels.
+ *
+ * Sets found covering nothing are dropped from the pool for good (coverage only grows), and
+ * a pick whose whole sample is dead falls back to scoring every live set, so solve() still
+ * stops exactly when no set can add coverage.  With a fixed seed the picks are reproducible.
+ *
+ */
+
+public class SetSampler {
+
+	private double _epsilon = 0.1;
+	private long _seed = 1;
+	private int _expectedPicks;     //k; 0 = estimate from the model
+
+	private SplittableRandom _rnd;
+	private int[] _live;            //ranks of the sets that may still cover something, in any order
+	private int _numLive;
+	private int _sampleSize;
+	private long _numScored;        //score() calls of the last solve()
+
+	public void setEpsilon(double epsilon) { _epsilon = epsilon; }
+	public void setSeed(long seed) { _seed = seed; }
+	public void setExpectedPicks(int k) { _expectedPicks = Math.max(0, k); }
+	public double getEpsilon() { return _epsilon; }
+	public long getSeed() { return _seed; }
+	public int getSampleSize() { return _sampleSize; } //per pick, for the last solve()
+	public long getNumScored() { return _numScored; }
+
+	@Override
+	public String toString() { //the settings that decide the picks
+		return "sampled epsilon=" + _epsilon + " seed=" + _seed + " k=" + (_expectedPicks == 0 ? "auto" : _expectedPicks);
+	}
+
+	/**
+	 * Start a solve(): every set is live again and the random sequence restarts from the seed.
+	 */
+
+	void reset(CompiledModel cm) {
+		int m = cm.getNumS();
+		_live = new int[m];
+		for (int r = 0; r < m; r++) {
+			_live[r] = r;
+		}
+		_numLive = m;
+		_numScored = 0;
+		_rnd = new SplittableRandom(_seed);
+
+		int k = _expectedPicks;
+		if (k == 0) {
+			double avgSize = m == 0 ? 1 : Math.max(1.0, (double) cm.getNumEntries() / m);
+			k = (int) Math.max(1, Math.ceil(cm.getNumE() / avgSize)); //not alpha * n: the picks must not depend on alpha
+		}
+		double s = Math.ceil((double) m / k * Math.log(1 / _epsilon));
+		_sampleSize = (int) Math.max(1, Math.min(m, s));
+	}
+
+	/**
+	 * Best set of a fresh sample by the solver's score (lower is better, ties to the lower rank
+	 * like the scans), or null once no set covers anything.
+	 */
+
+	ElementSet next(GreedySolver solver, CompiledModel cm) {
+		if (_numLive <= _sampleSize) {
+			return scanLive(solver, cm); //the sample would be the whole pool: be exact
+		}
+
+		int best = -1;
+		double bestScore = Double.MAX_VALUE;
+		for (int i = 0; i < _sampleSize && _numLive > 0; i++) { //with replacement: cheap, and duplicates are rare
+			int pos = _rnd.nextInt(_numLive);
+			int r = _live[pos];
+			double score = solver.score(cm.getSet(r));
+			_numScored++;
+			solver.countScan(1, cm.getSize(r));
+			if (!(score < Double.MAX_VALUE)) {
+				_live[pos] = _live[--_numLive]; //dead for the rest of the solve()
+				continue;
+			}
+			if (score < bestScore || (score == bestScore && r < best)) {
+				bestScore = score;
+				best = r;
+			}
+		}
+		return best < 0 ? scanLive(solver, cm) : cm.getSet(best);
+	}
+
+	private ElementSet scanLive(GreedySolver solver, CompiledModel cm) {
+		int best = -1;
+		double bestScore = Double.MAX_VALUE;
+		for (int pos = 0; pos < _numLive; ) {
+			int r = _live[pos];
+			double score = solver.score(cm.getSet(r));
+			_numScored++;
+			solver.countScan(1, cm.getSize(r));
+			if (!(score < Double.MAX_VALUE)) {
+				_live[pos] = _live[--_numLive];
+				continue; //look at the set moved into pos
+			}
+			if (score < bestScore || (score == bestScore && r < best)) {
+				bestScore = score;
+				best = r;
+			}
+			pos++;
+		}
+		return best < 0 ? null : cm.getSet(best);
+	}
+}
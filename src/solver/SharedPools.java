@@ -0,0 +1,27 @@
+/**
+ *
+ */
+package solver;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Fork-join pools shared by every solver that asks for a given number of threads, so that
+ * setThreads() does not start a new pool per call (or per solver, which nothing ever shut
+ * down).  There is one pool per thread count; their threads are daemons and end once idle.
+ *
+ */
+
+final class SharedPools {
+
+	private static final ConcurrentHashMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<Integer, ForkJoinPool>();
+
+	private SharedPools() {
+	}
+
+	static ForkJoinPool of(int threads) { //at least 1 thread
+		return POOLS.computeIfAbsent(Math.max(1, threads), n -> new ForkJoinPool(n));
+	}
+}
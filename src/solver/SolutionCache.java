@@ -0,0 +1,307 @@
+/**
+ *
+ */
+package solver;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import model.CompiledModel;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Cache of solve() results in front of the solvers, for workloads that submit the same
+ * instances again and again.  An entry is keyed on the model's content hash
+ * (CompiledModel.getContentHash(), so an identical model built again or loaded from the same
+ * file hits) and the solver's getVariant(), and holds the trajectory of the run: the picks by
+ * set ID with running cost and coverage.  The picks do not depend on alpha, so an entry answers
+ * every coverage level up to the one it was solved for (any level once the run went to the
+ * end), and a run at a higher alpha replaces the entry of a lower one.  Solvers whose picks do
+ * depend on alpha, time or chance (GreedySolver.picksIndependentOfAlpha() false, such as
+ * AnytimeSolver) are solved directly and never cached, and neither is a cancelled solve.
+ *
+ * The memory tier is an LRU map bounded by an estimate of the bytes held; every access is
+ * under one lock, while solving and disk I/O happen outside it.  With a directory, every new
+ * entry is also written there (one small file per key, written to a temporary file and then
+ * moved into place) and a memory miss looks there before solving, so results survive restarts.
+ * The disk tier is best-effort: a file that cannot be read or written counts as a miss.  Two
+ * threads missing on the same key at once both solve it.
+ *
+ */
+
+public class SolutionCache {
+
+	public static final int MAGIC = 0x53435054; //"SCPT"
+	public static final int VERSION = 1;
+
+	private final long _maxBytes;
+	private final Path _dir; //null: memory only
+	private final LinkedHashMap<Key, Entry> _lru = new LinkedHashMap<Key, Entry>(16, 0.75f, true); //access order
+	private long _bytes;
+
+	private final AtomicLong _hits = new AtomicLong();
+	private final AtomicLong _diskHits = new AtomicLong();
+	private final AtomicLong _misses = new AtomicLong();
+	private final AtomicLong _diskErrors = new AtomicLong();
+	private final AtomicLong _bypassed = new AtomicLong();
+
+	public SolutionCache(long maxBytes) {
+		_maxBytes = maxBytes;
+		_dir = null;
+	}
+
+	public SolutionCache(long maxBytes, Path dir) throws IOException {
+		_maxBytes = maxBytes;
+		_dir = Files.createDirectories(dir);
+	}
+
+	public long getHits() { return _hits.get(); }         //answered from memory or disk
+	public long getDiskHits() { return _diskHits.get(); } //of which from disk
+	public long getMisses() { return _misses.get(); }
+	public long getDiskErrors() { return _diskErrors.get(); }
+	public long getBypassed() { return _bypassed.get(); } //solves of solvers that cannot be cached
+	public synchronized int size() { return _lru.size(); }
+	public synchronized long getBytes() { return _bytes; }
+	public synchronized void clear() { _lru.clear(); _bytes = 0; } //memory tier only
+
+	/**
+	 * Leave the solver with the result of solve() for its model and alpha, taken from the cache
+	 * when an entry answers it (then getCompTime() is that of the original run and nothing is
+	 * printed).  Returns true on a hit.
+	 */
+
+	public boolean solve(GreedySolver solver) {
+		if (!solver.picksIndependentOfAlpha()) {
+			_bypassed.incrementAndGet();
+			solver.solve();
+			return false;
+		}
+		CompiledModel cm = solver._model.freeze();
+		Key key = new Key(cm.getContentHash(), solver.getVariant());
+		double alpha = solver.getMinCoverage();
+
+		Entry e = get(key);
+		boolean fromDisk = false;
+		if (e == null && _dir != null) {
+			e = read(key);
+			fromDisk = e != null;
+		}
+		Trajectory t = e == null || !e.answers(alpha) ? null : e.toTrajectory(cm);
+		if (t != null) {
+			if (fromDisk) {
+				put(key, e);
+				_diskHits.incrementAndGet();
+			}
+			_hits.incrementAndGet();
+			solver._trajectory = t;
+			solver.solveFromTrajectory();
+			return true;
+		}
+
+		_misses.incrementAndGet();
+		solver.solve();
+		if (!solver.isCancelled() && put(key, new Entry(solver._trajectory)) && _dir != null) {
+			write(key, get(key));
+		}
+		return false;
+	}
+
+	private synchronized Entry get(Key key) {
+		return _lru.get(key);
+	}
+
+	private synchronized boolean put(Key key, Entry e) { //false if the entry held already goes at least as far
+		Entry old = _lru.get(key);
+		if (old != null && !e.goesFurtherThan(old)) {
+			return false;
+		}
+		if (old != null) {
+			_bytes -= old.bytes();
+		}
+		_lru.put(key, e);
+		_bytes += e.bytes();
+
+		Iterator<Map.Entry<Key, Entry>> it = _lru.entrySet().iterator();
+		while (_bytes > _maxBytes && it.hasNext()) { //least recently used first; may drop the new entry too if it is too big
+			Entry victim = it.next().getValue();
+			it.remove();
+			_bytes -= victim.bytes();
+		}
+		return true;
+	}
+
+	private Path file(Key key) {
+		return _dir.resolve(String.format("%016x-%08x.traj", key._hash, key._variant.hashCode()));
+	}
+
+	private Entry read(Key key) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file(key))))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != key._hash || !in.readUTF().equals(key._variant)) {
+				return null; //another format, or two variants with the same file name
+			}
+			return new Entry(in);
+		}
+		catch (NoSuchFileException e) {
+			return null;
+		}
+		catch (IOException e) {
+			_diskErrors.incrementAndGet();
+			return null;
+		}
+	}
+
+	private void write(Key key, Entry e) {
+		if (e == null) {
+			return; //evicted at once (bigger than the whole cache); still worth nothing on disk
+		}
+		Path tmp = null;
+		try {
+			tmp = Files.createTempFile(_dir, "traj", ".tmp");
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeLong(key._hash);
+				out.writeUTF(key._variant);
+				e.write(out);
+			}
+			try {
+				Files.move(tmp, file(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException x) {
+				Files.move(tmp, file(key), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		catch (IOException x) {
+			_diskErrors.incrementAndGet();
+			try {
+				if (tmp != null) {
+					Files.deleteIfExists(tmp);
+				}
+			}
+			catch (IOException ignored) {
+			}
+		}
+	}
+
+	private static final class Key {
+		final long _hash;
+		final String _variant;
+
+		Key(long hash, String variant) {
+			_hash = hash;
+			_variant = variant;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Key && ((Key) o)._hash == _hash && ((Key) o)._variant.equals(_variant);
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(_hash) * 31 + _variant.hashCode();
+		}
+	}
+
+	/**
+	 * A trajectory detached from its model: set IDs instead of ElementSets.
+	 */
+
+	private static final class Entry {
+		final int _numE;
+		final boolean _complete;
+		final int[] _setIDs;   //k-th pick
+		final double[] _cost;  //after the first k picks, like Trajectory
+		final int[] _covered;
+		final long[] _time;
+
+		Entry(Trajectory t) {
+			int k = t.size();
+			_numE = t.getNumE();
+			_complete = t.isComplete();
+			_setIDs = new int[k];
+			_cost = new double[k + 1];
+			_covered = new int[k + 1];
+			_time = new long[k + 1];
+			for (int i = 0; i <= k; i++) {
+				if (i < k) {
+					_setIDs[i] = t.getSet(i).getSetID();
+				}
+				_cost[i] = t.getCost(i);
+				_covered[i] = t.getCovered(i);
+				_time[i] = t.getTime(i);
+			}
+		}
+
+		Entry(DataInputStream in) throws IOException {
+			_numE = in.readInt();
+			_complete = in.readBoolean();
+			int k = in.readInt();
+			_setIDs = new int[k];
+			_cost = new double[k + 1];
+			_covered = new int[k + 1];
+			_time = new long[k + 1];
+			for (int i = 0; i <= k; i++) {
+				if (i < k) {
+					_setIDs[i] = in.readInt();
+				}
+				_cost[i] = in.readDouble();
+				_covered[i] = in.readInt();
+				_time[i] = in.readLong();
+			}
+		}
+
+		void write(DataOutputStream out) throws IOException {
+			out.writeInt(_numE);
+			out.writeBoolean(_complete);
+			out.writeInt(_setIDs.length);
+			for (int i = 0; i <= _setIDs.length; i++) {
+				if (i < _setIDs.length) {
+					out.writeInt(_setIDs[i]);
+				}
+				out.writeDouble(_cost[i]);
+				out.writeInt(_covered[i]);
+				out.writeLong(_time[i]);
+			}
+		}
+
+		boolean answers(double alpha) { //same rule as Trajectory.answers()
+			return _complete || (int)Math.ceil(alpha * _numE) <= _covered[_setIDs.length];
+		}
+
+		boolean goesFurtherThan(Entry o) {
+			return !o._complete && (_complete || _covered[_setIDs.length] > o._covered[o._setIDs.length]);
+		}
+
+		long bytes() { //rough heap footprint
+			return 128 + 28L * _setIDs.length;
+		}
+
+		Trajectory toTrajectory(CompiledModel cm) { //null if the model does not have the sets (a hash collision)
+			if (cm.getNumE() != _numE) {
+				return null;
+			}
+			Trajectory t = new Trajectory(cm);
+			for (int i = 0; i < _setIDs.length; i++) {
+				int r = cm.rankOfID(_setIDs[i]);
+				if (r < 0) {
+					return null;
+				}
+				t.add(cm.getSet(r), _cost[i + 1], _covered[i + 1], _time[i + 1]);
+			}
+			t.finish(_complete);
+			return t;
+		}
+	}
+}
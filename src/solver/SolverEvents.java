@@ -0,0 +1,66 @@
+/**
+ *
+ */
+package solver;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Java Flight Recorder events of GreedySolver.solve().  "solver.Solve" (one per solve, with the
+ * SolverMetrics totals) is on by default; "solver.Pick" (one per selected set) is off by
+ * default and can be switched on in a recording's settings.  solve() only creates them while
+ * Flight Recorder is running (otherwise JFR is not even initialized), and a disabled event
+ * costs next to nothing.
+ *
+ */
+
+public final class SolverEvents {
+
+	private SolverEvents() { }
+
+	static boolean isRecording() { //Flight Recorder has been started (-XX:StartFlightRecording, jcmd JFR.start, ...)
+		return FlightRecorder.isInitialized();
+	}
+
+	@Name("solver.Solve")
+	@Label("Greedy Solve")
+	@Category("Set Cover")
+	@Description("One solve() of a greedy heuristic")
+	@StackTrace(false)
+	public static final class Solve extends Event {
+		@Label("Solver") String solver;
+		@Label("Sets") int numSets;
+		@Label("Elements") int numElements;
+		@Label("Alpha") double alpha;
+		@Label("Iterations") int iterations;
+		@Label("Setup") @Timespan(Timespan.NANOSECONDS) long setupNanos;
+		@Label("Selection") @Timespan(Timespan.NANOSECONDS) long selectionNanos;
+		@Label("Update") @Timespan(Timespan.NANOSECONDS) long updateNanos;
+		@Label("Sets Scanned") long setsScanned;
+		@Label("Membership Checks") long membershipChecks;
+		@Label("Objective") double objFn;
+		@Label("Coverage") double coverage;
+	}
+
+	@Name("solver.Pick")
+	@Label("Greedy Pick")
+	@Category("Set Cover")
+	@Description("One set selected by solve()")
+	@StackTrace(false)
+	@Enabled(false)
+	public static final class Pick extends Event {
+		@Label("Solver") String solver;
+		@Label("Iteration") int iteration;
+		@Label("Set ID") int setID;
+		@Label("Covered") int covered;
+	}
+}
@@ -0,0 +1,34 @@
+/**
+ *
+ */
+package solver;
+import util.ElementSet;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Progress events of GreedySolver.solve().  Every method does nothing by default, so a listener
+ * only overrides what it needs; solvers start with NONE, and setVerbose(true) installs a
+ * ConsoleListener (the "Running / Selected / Done" output of the original program).
+ *
+ * The methods are called on the solving thread, in the middle of the greedy loop, so they
+ * should be quick; wrap a slow listener in an AsyncListener.
+ *
+ */
+
+public interface SolverListener {
+
+	SolverListener NONE = new SolverListener() { }; //the default: no output, no cost
+
+	/** After the model is compiled, before the heuristic builds its selection structures. */
+	default void solveStarted(GreedySolver solver) { }
+
+	/** A set was added to the solution; iteration counts from 1. */
+	default void setSelected(GreedySolver solver, ElementSet set, int iteration) { }
+
+	/** The coverage level alpha could not be reached (by solve() or solveFromTrajectory()). */
+	default void coverageNotReached(GreedySolver solver, double alpha) { }
+
+	/** solve() is done; metrics are those of this solve. */
+	default void solveFinished(GreedySolver solver, SolverMetrics metrics) { }
+}
@@ -0,0 +1,87 @@
+/**
+ *
+ */
+package solver;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Counters and timers of one solve(), taken with System.nanoTime():
+ *
+ *   setup      - reset, model compilation and the heuristic's initSelection()
+ *   selection  - time spent in nextBestSet() (or the parallel scan)
+ *   update     - covering the picked set's elements (including elementCovered())
+ *
+ * An iteration is one pick (selection + update).  Its latency goes into a histogram with one
+ * bucket per power of two nanoseconds, so percentiles are upper bounds within a factor of 2.
+ * Sets scanned and membership checks (uncovered-element lookups) are counted by the heuristics
+ * that scan; the parallel scan counts sets only.
+ *
+ * Instances are immutable snapshots (GreedySolver.getMetrics()).
+ *
+ */
+
+public final class SolverMetrics {
+
+	private final String _solver;
+	private final int _iterations;
+	private final long _setupNanos, _selectionNanos, _updateNanos, _maxIterationNanos;
+	private final long _setsScanned, _membershipChecks;
+	private final long[] _histogram; //_histogram[b]: iterations that took less than 2^b ns (and at least 2^(b-1))
+
+	SolverMetrics(String solver, int iterations, long setupNanos, long selectionNanos, long updateNanos,
+			long maxIterationNanos, long[] histogram, long setsScanned, long membershipChecks) {
+		_solver = solver;
+		_iterations = iterations;
+		_setupNanos = setupNanos;
+		_selectionNanos = selectionNanos;
+		_updateNanos = updateNanos;
+		_maxIterationNanos = maxIterationNanos;
+		_histogram = histogram.clone();
+		_setsScanned = setsScanned;
+		_membershipChecks = membershipChecks;
+	}
+
+	static int bucket(long nanos) { //histogram bucket of a latency
+		return 64 - Long.numberOfLeadingZeros(Math.max(0, nanos));
+	}
+
+	public String getSolver() { return _solver; }
+	public int getIterations() { return _iterations; }
+	public long getSetupNanos() { return _setupNanos; }
+	public long getSelectionNanos() { return _selectionNanos; }
+	public long getUpdateNanos() { return _updateNanos; }
+	public long getTotalNanos() { return _setupNanos + _selectionNanos + _updateNanos; }
+	public long getMaxIterationNanos() { return _maxIterationNanos; }
+	public long getSetsScanned() { return _setsScanned; }
+	public long getMembershipChecks() { return _membershipChecks; }
+
+	public long getMeanIterationNanos() {
+		return _iterations == 0 ? 0 : (_selectionNanos + _updateNanos) / _iterations;
+	}
+
+	/**
+	 * Latency that at least a fraction p (in [0, 1]) of the iterations stayed under, rounded up
+	 * to a power of two (and never above the maximum seen).
+	 */
+
+	public long getIterationPercentileNanos(double p) {
+		long target = (long)Math.ceil(p * _iterations);
+		long seen = 0;
+		for (int b = 0; b < _histogram.length; b++) {
+			seen += _histogram[b];
+			if (seen >= target && seen > 0) {
+				return b == 0 ? 0 : Math.min(_maxIterationNanos, b >= 63 ? Long.MAX_VALUE : 1L << b);
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("'%s': %d iterations, setup %.3fms, selection %.3fms, update %.3fms, iteration mean %dns p50 %dns p99 %dns max %dns,"
+				+ " %d sets scanned, %d membership checks", _solver, _iterations, _setupNanos / 1e6, _selectionNanos / 1e6, _updateNanos / 1e6,
+				getMeanIterationNanos(), getIterationPercentileNanos(0.5), getIterationPercentileNanos(0.99), _maxIterationNanos,
+				_setsScanned, _membershipChecks);
+	}
+}
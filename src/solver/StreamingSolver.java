@@ -0,0 +1,205 @@
+/**
+ *
+ */
+package solver;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import io.SetStream;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Semi-streaming greedy for instances that do not fit on the heap: the sets are never loaded,
+ * the solver reads the file again and again (io.SetStream) and keeps only a bitmap of the
+ * uncovered elements (indexed by element ID, so max ID / 8 bytes) and the IDs of the sets it
+ * picked.
+ *
+ * The first pass marks every element.  Each later pass has a threshold on the efficiency of a
+ * set, its newly covered elements per unit cost, and takes every set that reaches it, in file
+ * order, the moment it is read; the threshold then shrinks by 1+epsilon (or straight down to
+ * the best set the pass turned down, skipping the levels no set is in).  Equivalently, the cost
+ * per newly covered element that is accepted rises by 1+epsilon per pass.  Every set taken is
+ * within 1+epsilon of the best one at that moment, which gives Chvatal's bound times
+ * (1+epsilon); the picks and their order are not Chvatal's.  The number of passes grows with
+ * log(efficiency range) / log(1+epsilon); setMaxPasses() caps it, the last pass then taking any
+ * set that covers something new (no pass is made after it, even if alpha is not reached).
+ *
+ * Alpha has GreedySolver's meaning: stop once ceil(alpha * n) of the n distinct elements of the
+ * file are covered (mid-pass, without reading the rest), or when no set covers anything new.
+ *
+ */
+
+public class StreamingSolver {
+
+	public static final double DEFAULT_EPSILON = 0.25;
+
+	private final File _file;
+	private double _alpha;
+	private double _epsilon = DEFAULT_EPSILON;
+	private int _maxPasses = Integer.MAX_VALUE;
+	private boolean _verbose;
+
+	// Results of the last solve()
+	private double _objFn;
+	private double _coverage;
+	private long _compTime;
+	private int _numE;
+	private int _numPasses;
+	private long _bytesRead;
+	private int[] _soln = new int[0];
+
+	// State of the pass in progress
+	private BitSet _uncovered;
+	private int _covered, _need;
+	private double _threshold, _turnedDown;
+	private int _numSoln;
+
+	public StreamingSolver(File file) {
+		_file = file;
+	}
+
+	public void setMinCoverage(double alpha) { _alpha = alpha; }
+	public void setVerbose(boolean verbose) { _verbose = verbose; } //one line per pass
+
+	public void setEpsilon(double epsilon) { //threshold shrink factor 1+epsilon per pass
+		if (!(epsilon > 0)) {
+			throw new IllegalArgumentException("epsilon must be positive: " + epsilon);
+		}
+		_epsilon = epsilon;
+	}
+
+	public void setMaxPasses(int maxPasses) { //counting the first (marking) pass; at least 2
+		if (maxPasses < 2) {
+			throw new IllegalArgumentException("need at least 2 passes: " + maxPasses);
+		}
+		_maxPasses = maxPasses;
+	}
+
+	public double getMinCoverage() { return _alpha; }
+	public double getEpsilon() { return _epsilon; }
+	public double getObjFn() { return _objFn; }
+	public double getCoverage() { return _coverage; }
+	public long getCompTime() { return _compTime; }
+	public String getName() { return "Streaming"; }
+	public int getNumE() { return _numE; }            //distinct elements in the file
+	public int getNumPasses() { return _numPasses; }  //including the first
+	public long getBytesRead() { return _bytesRead; } //over all passes
+	public int[] getSolnSetIDs() { return _soln.clone(); } //sets picked by the last solve(), in ID order
+
+	public void solve() throws IOException {
+		long start = System.currentTimeMillis();
+		_objFn = 0;
+		_numSoln = 0;
+		_soln = new int[16];
+		_numPasses = 0;
+		_bytesRead = 0;
+
+		try (SetStream in = new SetStream(_file)) {
+			// Pass 1: which elements are there, and the best efficiency any set could have
+			_uncovered = new BitSet(in.getNumE() + 1);
+			_threshold = 0;
+			_bytesRead += in.pass(this::mark);
+			_numPasses++;
+			_numE = _uncovered.cardinality();
+			_need = (int)Math.ceil(_alpha * _numE);
+			_covered = 0;
+			if (_verbose) {
+				System.out.format("- Pass %d: %d distinct elements, %d to cover\n", _numPasses, _numE, _need);
+			}
+
+			// Threshold passes until alpha is reached or no set adds anything
+			while (_covered < _need) {
+				if (_numPasses + 1 >= _maxPasses) {
+					_threshold = 0; //last pass allowed: anything that covers something
+				}
+				_turnedDown = 0;
+				int before = _numSoln;
+				_bytesRead += in.pass(this::select);
+				_numPasses++;
+				if (_verbose) {
+					System.out.format("- Pass %d: threshold %.4g, %d sets selected, %d of %d elements covered\n",
+							_numPasses, _threshold, _numSoln - before, _covered, _numE);
+				}
+				if (_covered >= _need || (_turnedDown == 0 && _numSoln == before) || _numPasses >= _maxPasses) {
+					break; //done, no set covers anything new, or that was the last pass allowed
+				}
+				_threshold = Math.min(_threshold / (1 + _epsilon), _turnedDown);
+			}
+		}
+		finally {
+			_uncovered = null;
+		}
+
+		_soln = Arrays.copyOf(_soln, _numSoln);
+		Arrays.sort(_soln);
+		_coverage = _numE == 0 ? 1 : (double)_covered / _numE;
+		_compTime = System.currentTimeMillis() - start;
+		if (_verbose && _covered < _need) {
+			System.out.format("\nWARNING: Impossible to reach %.2f%% coverage level.\n", 100*_alpha);
+		}
+	}
+
+	private boolean mark(int setID, double cost, int[] elems, int len) {
+		for (int i = 0; i < len; i++) {
+			_uncovered.set(elems[i]);
+		}
+		if (cost > 0) {
+			_threshold = Math.max(_threshold, len / cost); //len may count duplicates; only an upper bound is needed
+		}
+		return true;
+	}
+
+	private boolean select(int setID, double cost, int[] elems, int len) {
+		// Claim the uncovered elements right away (moving them to the front of elems), which also
+		// counts duplicates once; they are given back if the set is turned down
+		int fresh = 0;
+		for (int i = 0; i < len; i++) {
+			int e = elems[i];
+			if (_uncovered.get(e)) {
+				_uncovered.clear(e);
+				elems[fresh++] = e;
+			}
+		}
+		if (fresh == 0) {
+			return true;
+		}
+
+		double efficiency = cost > 0 ? fresh / cost : Double.POSITIVE_INFINITY;
+		if (efficiency < _threshold) {
+			for (int i = 0; i < fresh; i++) {
+				_uncovered.set(elems[i]);
+			}
+			_turnedDown = Math.max(_turnedDown, efficiency);
+			return true;
+		}
+
+		if (_numSoln == _soln.length) {
+			_soln = Arrays.copyOf(_soln, _numSoln * 2);
+		}
+		_soln[_numSoln++] = setID;
+		_objFn += cost;
+		_covered += fresh;
+		return _covered < _need; //stop reading as soon as alpha is reached
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("usage: solver.StreamingSolver file [alpha=1] [epsilon=" + DEFAULT_EPSILON + "] [maxPasses]");
+			return;
+		}
+		StreamingSolver s = new StreamingSolver(new File(args[0]));
+		s.setMinCoverage(args.length > 1 ? Double.parseDouble(args[1]) : 1);
+		if (args.length > 2) {
+			s.setEpsilon(Double.parseDouble(args[2]));
+		}
+		if (args.length > 3) {
+			s.setMaxPasses(Integer.parseInt(args[3]));
+		}
+		s.setVerbose(true);
+		s.solve();
+		System.out.format("\n%-25s%12d%15.4f%17.2f\n", s.getName(), s.getCompTime(), s.getObjFn(), 100*s.getCoverage());
+		System.out.format("%d sets, %d passes, %d bytes read\n", s._soln.length, s.getNumPasses(), s.getBytesRead());
+	}
+}
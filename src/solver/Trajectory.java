@@ -0,0 +1,112 @@
+/**
+ *
+ */
+package solver;
+import java.util.Arrays;
+import java.util.TreeSet;
+import model.CompiledModel;
+import util.ElementSet;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * The sequence of sets a greedy solve() picked, with the running cost, number of covered
+ * elements and elapsed time after each pick.  For the greedy heuristics the picks do not
+ * depend on alpha (it only decides when solve() stops), so one trajectory run to full coverage
+ * answers every coverage level: the result for alpha is the shortest prefix covering
+ * ceil(alpha * n) elements, found by binary search over the covered counts.  Solvers whose picks
+ * do depend on alpha (GreedySolver.picksIndependentOfAlpha()) are never answered this way.
+ *
+ */
+
+public final class Trajectory {
+
+	private final CompiledModel _compiled;  //model the trajectory was recorded on
+	private ElementSet[] _sets = new ElementSet[16];
+	private double[] _cost = new double[17];  //_cost[k], _covered[k], _time[k] = after the first k picks
+	private int[] _covered = new int[17];
+	private long[] _time = new long[17];
+	private int _size;
+	private boolean _complete;              //ran until everything was covered or nothing was left to pick
+
+	Trajectory(CompiledModel compiled) {
+		_compiled = compiled;
+	}
+
+	void add(ElementSet es, double cost, int covered, long time) { //called by solve() after each pick
+		if (_size == _sets.length) {
+			_sets = Arrays.copyOf(_sets, _size * 2);
+			_cost = Arrays.copyOf(_cost, _size * 2 + 1);
+			_covered = Arrays.copyOf(_covered, _size * 2 + 1);
+			_time = Arrays.copyOf(_time, _size * 2 + 1);
+		}
+		_sets[_size++] = es;
+		_cost[_size] = cost;
+		_covered[_size] = covered;
+		_time[_size] = time;
+	}
+
+	void finish(boolean complete) {
+		_complete = complete || _covered[_size] == _compiled.getNumE();
+	}
+
+	public boolean isFor(CompiledModel compiled) { return _compiled == compiled; }
+	public boolean isComplete() { return _complete; }
+	public int size() { return _size; }
+	public int getNumE() { return _compiled.getNumE(); }
+
+	//step k = state after the first k picks (0 <= k <= size())
+	public ElementSet getSet(int i) { return _sets[i]; } //i-th pick, 0-based
+	public double getCost(int k) { return _cost[k]; }
+	public int getCovered(int k) { return _covered[k]; }
+	public long getTime(int k) { return _time[k]; }
+
+	/**
+	 * Can the result for alpha be read off this trajectory?  Always if it was run to the end,
+	 * otherwise only for the coverage levels it got to.
+	 */
+
+	public boolean answers(double alpha) {
+		return _complete || needed(alpha) <= _covered[_size];
+	}
+
+	/**
+	 * Number of picks solve() makes at coverage level alpha: the first k whose covered count
+	 * reaches ceil(alpha * n), or all of them if none does.
+	 */
+
+	public int stepsFor(double alpha) {
+		int need = needed(alpha);
+		int lo = 0, hi = _size; //covered counts increase with k
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (_covered[mid] >= need) {
+				hi = mid;
+			}
+			else {
+				lo = mid + 1;
+			}
+		}
+		return lo;
+	}
+
+	public double getObjFn(double alpha) { return _cost[stepsFor(alpha)]; }
+	public long getCompTime(double alpha) { return _time[stepsFor(alpha)]; }
+
+	public double getCoverage(double alpha) { //same formula as solve()
+		return (double) _covered[stepsFor(alpha)] / (double) getNumE();
+	}
+
+	public TreeSet<ElementSet> getSolnSets(double alpha) {
+		TreeSet<ElementSet> soln = new TreeSet<ElementSet>();
+		int k = stepsFor(alpha);
+		for (int i = 0; i < k; i++) {
+			soln.add(_sets[i]);
+		}
+		return soln;
+	}
+
+	private int needed(double alpha) {
+		return (int)Math.ceil(alpha * getNumE()); //num_to_cover in solve()
+	}
+}
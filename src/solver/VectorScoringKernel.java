@@ -0,0 +1,55 @@
+/**
+ * 
+ */
+package solver;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * SIMD version of the scoring kernel: ANDs a set's row with the uncovered words in the widest
+ * LongVector species of the machine and counts bits lane-wise (the incubator API has no
+ * BIT_COUNT lane operation in this JDK, so it uses the usual shift/mask/multiply popcount).
+ * Only load it through ScoringKernel.create(), which falls back to the scalar kernel when
+ * jdk.incubator.vector is not available.
+ *
+ */
+
+public class VectorScoringKernel extends ScoringKernel {
+	
+	private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+	
+	@Override
+	public void countUncovered(long[] setBits, int words, long[] uncovered, int from, int to, int[] out) {
+		int bound = SPECIES.loopBound(words);
+		
+		for (int r = from; r < to; r++) {
+			int base = r * words;
+			LongVector acc = LongVector.zero(SPECIES);
+			
+			int w = 0;
+			for (; w < bound; w += SPECIES.length()) {
+				LongVector x = LongVector.fromArray(SPECIES, setBits, base + w).and(LongVector.fromArray(SPECIES, uncovered, w));
+				acc = acc.add(popcount(x));
+			}
+			
+			int count = (int) acc.reduceLanes(VectorOperators.ADD);
+			for (; w < words; w++) { //tail shorter than one vector
+				count += Long.bitCount(setBits[base + w] & uncovered[w]);
+			}
+			out[r] = count;
+		}
+	}
+	
+	private static LongVector popcount(LongVector x) { //per-lane popcount
+		x = x.sub(x.lanewise(VectorOperators.LSHR, 1).and(0x5555555555555555L));
+		x = x.and(0x3333333333333333L).add(x.lanewise(VectorOperators.LSHR, 2).and(0x3333333333333333L));
+		x = x.add(x.lanewise(VectorOperators.LSHR, 4)).and(0x0F0F0F0F0F0F0F0FL);
+		return x.mul(0x0101010101010101L).lanewise(VectorOperators.LSHR, 56);
+	}
+	
+	@Override
+	public String getName() { return "vector(" + SPECIES.length() + "x64)"; }
+}
@@ -0,0 +1,163 @@
+/**
+ *
+ */
+package util;
+import java.util.Arrays;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Compact storage for a collection of weighted sets, in the style of compressed sparse rows:
+ * set i owns _elements[_offsets[i]] .. _elements[_offsets[i+1]-1], and its ID and cost sit in
+ * _setIDs[i] and _costs[i].  Element IDs are renumbered to a dense 0..n-1 range (in the order
+ * they are first seen) and each set's dense IDs are kept sorted, so membership is a binary search.
+ *
+ * Storage is append-only: a set's index and an element's dense ID never change once assigned,
+ * which lets ElementSet be a cheap view (storage + index) instead of owning a TreeSet.  Removing
+ * a set only frees its ID (the row stays, so existing views keep working), and a cost can be
+ * changed in place.
+ *
+ */
+
+public class CSRStorage {
+
+	private int[] _elements;           //dense element IDs of all sets, back to back
+	private int[] _offsets;            //_offsets[i] = start of set i in _elements (one extra entry at the end)
+	private double[] _costs;
+	private int[] _setIDs;
+	private int _numS;
+
+	private int[] _origIDs;            //dense ID -> original element ID
+	private int _numE;
+	private IntIntHashMap _denseOf;    //original element ID -> dense ID
+	private IntIntHashMap _indexOf;    //set ID -> set index (set IDs are unique, as in the TreeSet model)
+
+	public CSRStorage() {
+		_elements = new int[16];
+		_offsets = new int[9];
+		_costs = new double[8];
+		_setIDs = new int[8];
+		_origIDs = new int[16];
+		_denseOf = new IntIntHashMap();
+		_indexOf = new IntIntHashMap();
+	}
+
+	/**
+	 * Adopt ready-made CSR arrays (e.g. from a model snapshot) without copying them.  Each row
+	 * must hold sorted, distinct dense IDs below origIDs.length and set IDs must be distinct.
+	 */
+
+	public CSRStorage(int[] setIDs, double[] costs, int[] offsets, int[] elements, int[] origIDs) {
+		_setIDs = setIDs;
+		_costs = costs;
+		_offsets = offsets;
+		_elements = elements;
+		_numS = setIDs.length;
+		_origIDs = origIDs;
+		_numE = origIDs.length;
+
+		_denseOf = new IntIntHashMap(_numE);
+		for (int d = 0; d < _numE; d++) {
+			_denseOf.put(origIDs[d], d);
+		}
+		_indexOf = new IntIntHashMap(_numS);
+		for (int i = 0; i < _numS; i++) {
+			_indexOf.put(setIDs[i], i);
+		}
+	}
+
+	/**
+	 * Append a set given its original element IDs elements[from..to) (duplicates are ignored).
+	 * Returns the new set's index, or -1 if a set with this ID is already stored (the first one
+	 * is kept, like TreeSet.add).
+	 */
+
+	public int addSet(int ID, double cost, int[] elements, int from, int to) {
+		if (_indexOf.get(ID) >= 0) {
+			return -1;
+		}
+
+		if (_numS == _costs.length) {
+			int cap = Math.max(8, _numS * 2);
+			_costs = Arrays.copyOf(_costs, cap);
+			_setIDs = Arrays.copyOf(_setIDs, cap);
+			_offsets = Arrays.copyOf(_offsets, cap + 1);
+		}
+
+		int start = _offsets[_numS];
+		int len = to - from;
+		if (start + len > _elements.length) {
+			_elements = Arrays.copyOf(_elements, Math.max(start + len, _elements.length * 2));
+		}
+
+		for (int i = 0; i < len; i++) { //renumber into the dense range
+			_elements[start + i] = dense(elements[from + i]);
+		}
+
+		Arrays.sort(_elements, start, start + len);
+		int end = start;
+		for (int p = start; p < start + len; p++) { //drop duplicates in place
+			if (p == start || _elements[p] != _elements[end - 1]) {
+				_elements[end++] = _elements[p];
+			}
+		}
+
+		int index = _numS++;
+		_setIDs[index] = ID;
+		_costs[index] = cost;
+		_offsets[_numS] = end;
+		_indexOf.put(ID, index);
+
+		return index;
+	}
+
+	private int dense(int origID) { //dense ID of an element, assigning the next one if it is new
+		int d = _denseOf.get(origID);
+		if (d < 0) {
+			if (_numE == _origIDs.length) {
+				_origIDs = Arrays.copyOf(_origIDs, Math.max(16, _numE * 2));
+			}
+			d = _numE++;
+			_origIDs[d] = origID;
+			_denseOf.put(origID, d);
+		}
+		return d;
+	}
+
+	/**
+	 * Free the ID of set index, so indexOf() no longer finds it and the ID can be added again
+	 * (as a new row).  Returns false if the set was already removed.
+	 */
+
+	public boolean removeSet(int index) {
+		if (_indexOf.get(_setIDs[index]) != index) {
+			return false;
+		}
+		_indexOf.remove(_setIDs[index]);
+		return true;
+	}
+
+	public void setCost(int index, double cost) {
+		_costs[index] = cost;
+	}
+
+	//sets
+	public int getNumS() { return _numS; }
+	public int getSetID(int index) { return _setIDs[index]; }
+	public double getCost(int index) { return _costs[index]; }
+	public int start(int index) { return _offsets[index]; }
+	public int end(int index) { return _offsets[index + 1]; }
+	public int size(int index) { return _offsets[index + 1] - _offsets[index]; }
+	public int element(int pos) { return _elements[pos]; } //dense ID at a position in [start, end)
+	public int indexOf(int ID) { return _indexOf.get(ID); } //-1 if no set has this ID
+	public boolean isLive(int index) { return _indexOf.get(_setIDs[index]) == index; } //false once removed
+
+	//elements
+	public int getNumE() { return _numE; }
+	public int origID(int dense) { return _origIDs[dense]; }
+	public int denseID(int origID) { return _denseOf.get(origID); } //-1 if no set contains the element
+
+	public boolean contains(int index, int dense) { //is the dense element in set index?
+		return Arrays.binarySearch(_elements, _offsets[index], _offsets[index + 1], dense) >= 0;
+	}
+}
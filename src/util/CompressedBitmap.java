@@ -0,0 +1,462 @@
+/**
+ *
+ */
+package util;
+import java.util.Arrays;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Compressed set of non-negative ints, in the spirit of Roaring bitmaps.  Values are split into
+ * chunks of 2^16 by their high 16 bits; a chunk with few values is stored as a sorted char[]
+ * (array container) and a chunk with more than 4096 values as a 1024-word bitmap (bitmap
+ * container), so sparse and dense universes both stay small and membership is one binary search
+ * over chunk keys plus one array/bit lookup.  The cardinality is kept up to date on every change.
+ *
+ */
+
+public class CompressedBitmap {
+
+	static final int ARRAY_MAX = 4096; //above this an array container becomes a bitmap container
+
+	private int[] _keys;               //high 16 bits of the chunks, ascending
+	private Container[] _containers;
+	private int _numChunks;
+	private int _cardinality;
+
+	public CompressedBitmap() {
+		_keys = new int[4];
+		_containers = new Container[4];
+	}
+
+	public int cardinality() { return _cardinality; }
+	public boolean isEmpty() { return _cardinality == 0; }
+
+	public void clear() {
+		Arrays.fill(_containers, 0, _numChunks, null);
+		_numChunks = 0;
+		_cardinality = 0;
+	}
+
+	public boolean contains(int value) {
+		int c = chunk(value >>> 16);
+		return c >= 0 && _containers[c].contains((char)value);
+	}
+
+	public boolean add(int value) { //true if the value was not there before
+		int key = value >>> 16;
+		int c = chunk(key);
+		if (c < 0) {
+			c = insertChunk(-c - 1, key, new ArrayContainer());
+		}
+
+		Container before = _containers[c];
+		int card = before.cardinality();
+		Container after = before.add((char)value);
+		_containers[c] = after;
+
+		if (after.cardinality() == card) {
+			return false;
+		}
+		_cardinality++;
+		return true;
+	}
+
+	public boolean remove(int value) { //true if the value was there
+		int c = chunk(value >>> 16);
+		if (c < 0) {
+			return false;
+		}
+
+		Container before = _containers[c];
+		int card = before.cardinality();
+		Container after = before.remove((char)value);
+
+		if (after.cardinality() == card) {
+			return false;
+		}
+		_cardinality--;
+		setOrDrop(c, after);
+		return true;
+	}
+
+	/**
+	 * Add every value in [from, to); whole chunks are filled as bitmap words, not one by one.
+	 */
+
+	public void addRange(int from, int to) {
+		int v = from;
+		while (v < to) {
+			int key = v >>> 16;
+			int chunkEnd = Math.min(to, (key + 1) << 16);
+			if (chunkEnd <= 0) { //(key + 1) << 16 overflowed: last chunk of the int range
+				chunkEnd = to;
+			}
+
+			int c = chunk(key);
+			if (c < 0) {
+				c = insertChunk(-c - 1, key, new ArrayContainer());
+			}
+
+			int card = _containers[c].cardinality();
+			BitmapContainer b = _containers[c].toBitmap();
+			b.setRange(v & 0xFFFF, (chunkEnd - 1 & 0xFFFF) + 1);
+			_containers[c] = b.cardinality() <= ARRAY_MAX ? b.toArray() : b;
+			_cardinality += _containers[c].cardinality() - card;
+
+			v = chunkEnd;
+		}
+	}
+
+	/**
+	 * Number of values in both this and other, without building the intersection.
+	 */
+
+	public int andCardinality(CompressedBitmap other) {
+		int count = 0;
+		int i = 0, j = 0;
+
+		while (i < _numChunks && j < other._numChunks) { //merge over the sorted chunk keys
+			if (_keys[i] < other._keys[j]) {
+				i++;
+			}
+			else if (_keys[i] > other._keys[j]) {
+				j++;
+			}
+			else {
+				count += _containers[i].andCardinality(other._containers[j]);
+				i++;
+				j++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Remove from this bitmap every value that is in other (this = this AND NOT other).
+	 */
+
+	public void andNot(CompressedBitmap other) {
+		int i = 0, j = 0;
+
+		while (i < _numChunks && j < other._numChunks) {
+			if (_keys[i] < other._keys[j]) {
+				i++;
+			}
+			else if (_keys[i] > other._keys[j]) {
+				j++;
+			}
+			else {
+				int card = _containers[i].cardinality();
+				Container after = _containers[i].andNot(other._containers[j]);
+				_cardinality += after.cardinality() - card;
+				j++;
+				if (setOrDrop(i, after)) {
+					i++;
+				}
+			}
+		}
+	}
+
+	public int[] toArray() { //all values, ascending
+		int[] values = new int[_cardinality];
+		int n = 0;
+		for (int c = 0; c < _numChunks; c++) {
+			n = _containers[c].fill(values, n, _keys[c] << 16);
+		}
+		return values;
+	}
+
+	public CompressedBitmap copy() {
+		CompressedBitmap b = new CompressedBitmap();
+		b._keys = Arrays.copyOf(_keys, Math.max(4, _numChunks));
+		b._containers = new Container[b._keys.length];
+		for (int c = 0; c < _numChunks; c++) {
+			b._containers[c] = _containers[c].copy();
+		}
+		b._numChunks = _numChunks;
+		b._cardinality = _cardinality;
+		return b;
+	}
+
+	private int chunk(int key) { //index of the chunk, or -(insertion point) - 1
+		return Arrays.binarySearch(_keys, 0, _numChunks, key);
+	}
+
+	private int insertChunk(int pos, int key, Container container) {
+		if (_numChunks == _keys.length) {
+			_keys = Arrays.copyOf(_keys, _numChunks * 2);
+			_containers = Arrays.copyOf(_containers, _numChunks * 2);
+		}
+		System.arraycopy(_keys, pos, _keys, pos + 1, _numChunks - pos);
+		System.arraycopy(_containers, pos, _containers, pos + 1, _numChunks - pos);
+		_keys[pos] = key;
+		_containers[pos] = container;
+		_numChunks++;
+		return pos;
+	}
+
+	private boolean setOrDrop(int c, Container container) { //store the container, or drop the chunk if it became empty
+		if (container.cardinality() > 0) {
+			_containers[c] = container;
+			return true;
+		}
+		System.arraycopy(_keys, c + 1, _keys, c, _numChunks - c - 1);
+		System.arraycopy(_containers, c + 1, _containers, c, _numChunks - c - 1);
+		_containers[--_numChunks] = null;
+		return false;
+	}
+
+	/**
+	 * One chunk of 2^16 values.  Mutators return the container to use afterwards, which is a
+	 * different type when the chunk crosses ARRAY_MAX.
+	 */
+
+	private static abstract class Container {
+		abstract int cardinality();
+		abstract boolean contains(char v);
+		abstract Container add(char v);
+		abstract Container remove(char v);
+		abstract int andCardinality(Container other);
+		abstract Container andNot(Container other);
+		abstract BitmapContainer toBitmap();
+		abstract int fill(int[] out, int n, int high);
+		abstract Container copy();
+	}
+
+	private static final class ArrayContainer extends Container {
+
+		char[] _values;
+		int _card;
+
+		ArrayContainer() {
+			_values = new char[4];
+		}
+
+		ArrayContainer(char[] values, int card) {
+			_values = values;
+			_card = card;
+		}
+
+		int cardinality() { return _card; }
+
+		boolean contains(char v) {
+			return Arrays.binarySearch(_values, 0, _card, v) >= 0;
+		}
+
+		Container add(char v) {
+			int pos = Arrays.binarySearch(_values, 0, _card, v);
+			if (pos >= 0) {
+				return this;
+			}
+			if (_card == ARRAY_MAX) { //too dense for an array
+				return toBitmap().add(v);
+			}
+			pos = -pos - 1;
+			if (_card == _values.length) {
+				_values = Arrays.copyOf(_values, Math.min(ARRAY_MAX, _card * 2));
+			}
+			System.arraycopy(_values, pos, _values, pos + 1, _card - pos);
+			_values[pos] = v;
+			_card++;
+			return this;
+		}
+
+		Container remove(char v) {
+			int pos = Arrays.binarySearch(_values, 0, _card, v);
+			if (pos >= 0) {
+				System.arraycopy(_values, pos + 1, _values, pos, _card - pos - 1);
+				_card--;
+			}
+			return this;
+		}
+
+		int andCardinality(Container other) {
+			int count = 0;
+			if (other instanceof BitmapContainer) {
+				for (int i = 0; i < _card; i++) {
+					if (other.contains(_values[i])) {
+						count++;
+					}
+				}
+				return count;
+			}
+
+			ArrayContainer a = (ArrayContainer)other;
+			int i = 0, j = 0;
+			while (i < _card && j < a._card) {
+				if (_values[i] < a._values[j]) {
+					i++;
+				}
+				else if (_values[i] > a._values[j]) {
+					j++;
+				}
+				else {
+					count++;
+					i++;
+					j++;
+				}
+			}
+			return count;
+		}
+
+		Container andNot(Container other) {
+			int n = 0;
+			for (int i = 0; i < _card; i++) { //keep the values other does not have, in place
+				if (!other.contains(_values[i])) {
+					_values[n++] = _values[i];
+				}
+			}
+			_card = n;
+			return this;
+		}
+
+		BitmapContainer toBitmap() {
+			BitmapContainer b = new BitmapContainer();
+			for (int i = 0; i < _card; i++) {
+				b._words[_values[i] >>> 6] |= 1L << _values[i];
+			}
+			b._card = _card;
+			return b;
+		}
+
+		int fill(int[] out, int n, int high) {
+			for (int i = 0; i < _card; i++) {
+				out[n++] = high | _values[i];
+			}
+			return n;
+		}
+
+		Container copy() {
+			return new ArrayContainer(Arrays.copyOf(_values, Math.max(4, _card)), _card);
+		}
+	}
+
+	private static final class BitmapContainer extends Container {
+
+		final long[] _words = new long[1024];
+		int _card;
+
+		int cardinality() { return _card; }
+
+		boolean contains(char v) {
+			return (_words[v >>> 6] & (1L << v)) != 0;
+		}
+
+		Container add(char v) {
+			long before = _words[v >>> 6];
+			long after = before | (1L << v);
+			if (after != before) {
+				_words[v >>> 6] = after;
+				_card++;
+			}
+			return this;
+		}
+
+		Container remove(char v) {
+			long before = _words[v >>> 6];
+			long after = before & ~(1L << v);
+			if (after != before) {
+				_words[v >>> 6] = after;
+				_card--;
+				if (_card <= ARRAY_MAX) { //sparse enough again for an array
+					return toArray();
+				}
+			}
+			return this;
+		}
+
+		void setRange(int from, int to) { //set bits [from, to) of this chunk
+			for (int v = from; v < to; ) {
+				if ((v & 63) == 0 && v + 64 <= to) { //whole words at once
+					_words[v >>> 6] = -1L;
+					v += 64;
+				}
+				else {
+					_words[v >>> 6] |= 1L << v;
+					v++;
+				}
+			}
+			_card = 0;
+			for (long w : _words) {
+				_card += Long.bitCount(w);
+			}
+		}
+
+		int andCardinality(Container other) {
+			if (other instanceof ArrayContainer) {
+				return other.andCardinality(this);
+			}
+			long[] w = ((BitmapContainer)other)._words;
+			int count = 0;
+			for (int i = 0; i < _words.length; i++) {
+				count += Long.bitCount(_words[i] & w[i]);
+			}
+			return count;
+		}
+
+		Container andNot(Container other) {
+			if (other instanceof ArrayContainer) {
+				ArrayContainer a = (ArrayContainer)other;
+				for (int i = 0; i < a._card; i++) {
+					char v = a._values[i];
+					long before = _words[v >>> 6];
+					long after = before & ~(1L << v);
+					if (after != before) {
+						_words[v >>> 6] = after;
+						_card--;
+					}
+				}
+			}
+			else {
+				long[] w = ((BitmapContainer)other)._words;
+				_card = 0;
+				for (int i = 0; i < _words.length; i++) {
+					_words[i] &= ~w[i];
+					_card += Long.bitCount(_words[i]);
+				}
+			}
+			return _card <= ARRAY_MAX ? toArray() : this;
+		}
+
+		BitmapContainer toBitmap() {
+			return this;
+		}
+
+		ArrayContainer toArray() {
+			char[] values = new char[Math.max(4, _card)];
+			fillChars(values);
+			return new ArrayContainer(values, _card);
+		}
+
+		private void fillChars(char[] values) {
+			int n = 0;
+			for (int i = 0; i < _words.length; i++) {
+				long w = _words[i];
+				while (w != 0) {
+					values[n++] = (char)((i << 6) + Long.numberOfTrailingZeros(w));
+					w &= w - 1;
+				}
+			}
+		}
+
+		int fill(int[] out, int n, int high) {
+			for (int i = 0; i < _words.length; i++) {
+				long w = _words[i];
+				while (w != 0) {
+					out[n++] = high | (i << 6) + Long.numberOfTrailingZeros(w);
+					w &= w - 1;
+				}
+			}
+			return n;
+		}
+
+		Container copy() {
+			BitmapContainer b = new BitmapContainer();
+			System.arraycopy(_words, 0, b._words, 0, _words.length);
+			b._card = _card;
+			return b;
+		}
+	}
+}
@@ -2,8 +2,16 @@
  * 
  */
 package util;
-import java.util.TreeSet;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 /**
  * @author neevi.shah@mail.utoronto.ca
@@ -13,21 +21,36 @@ import java.util.Collection;
  * override public int compareTo(Object o) so  that  it  can  be used in a sorted set.  
  * (See notes and example Java code files from lecture.)
  *
+ * The tuple itself lives in a CSRStorage (shared by every set of an SCPModel); an ElementSet is
+ * only a view of one row of it.  Solvers read the dense element IDs with size()/elementAt()
+ * without allocating; getESet() is the original-ID view kept for printing and older callers.
+ *
  */
 
 public class ElementSet implements Comparable { //Comparable interface orders objects (contains compareTo(Object)) Interfaces have to be implemented
 	//whereas classes are extended
 
-	private int _setID;
-	private double _cost;
-	private TreeSet <Integer> _elementsToCover; //TreeSet is a type of collection
+	private final CSRStorage _storage; //where the ID, cost and elements are stored
+	private final int _index; //row of this set in _storage
 	
 	public ElementSet(int ID, double cost, Collection <Integer> elements) { //Collection is a super class for List and TreeSet, elements has to work for the List type for SCPModel.java addSetToCover
-
-		_setID = ID;
-		_cost = cost;
-		_elementsToCover = new TreeSet<Integer> (elements);
-		
+		//a stand-alone set gets its own one-row storage (its dense IDs only mean something inside it)
+		_storage = new CSRStorage();
+		_index = _storage.addSet(ID, cost, toArray(elements), 0, elements.size());
+	}
+	
+	public ElementSet(CSRStorage storage, int index) { //view of a set already stored in a model's storage
+		_storage = storage;
+		_index = index;
+	}
+	
+	public static int[] toArray(Collection <Integer> elements) { //unbox once so the storage can work on ints
+		int[] arr = new int[elements.size()];
+		int i = 0;
+		for (Integer element : elements) {
+			arr[i++] = element;
+		}
+		return arr;
 	}
 	
 	@Override //override compareTo that is defined in Comparable
@@ -37,16 +60,18 @@ public class ElementSet implements Comparable { //Comparable interface orders ob
 		
 		if (o instanceof ElementSet) {
 			ElementSet es = (ElementSet)o; // cast (allowed bc o is of type ElementSet)
+			int id = this.getSetID();
+			int otherID = es.getSetID();
 			
-			if (this._setID < es._setID) { //if ID of instance is less than es' set ID, it would come before es
+			if (id < otherID) { //if ID of instance is less than es' set ID, it would come before es
 				return -1;
 			}
 			
-			else if (this._setID == es._setID) { //if ID of instance is equal to es' set ID, they have the same location in the order
+			else if (id == otherID) { //if ID of instance is equal to es' set ID, they have the same location in the order
 				return 0;
 			}
 			
-			else if (this._setID > es._setID) { //if ID of instance is more than es' set ID, it would come after es
+			else if (id > otherID) { //if ID of instance is more than es' set ID, it would come after es
 				return 1;
 			}
 		}
@@ -57,14 +82,158 @@ public class ElementSet implements Comparable { //Comparable interface orders ob
 	
 	//the following get methods are needed for toString in SCPModel
 	public int getSetID() { //get set ID of element set
-		return _setID; 
+		return _storage.getSetID(_index); 
 	}
 	
 	public double getCost() { //get cost of element set
-		return _cost;
+		return _storage.getCost(_index);
+	}
+	
+	public NavigableSet <Integer> getESet() { //get elements to cover of element set (original IDs, ascending like the old TreeSet)
+		return new ElementView(this);
 	}
 	
-	public TreeSet <Integer> getESet() { //get elements to cover of element set
-		return _elementsToCover;
+	//allocation-free access used by the solvers
+	public int size() { //number of elements in the set
+		return _storage.size(_index);
+	}
+	
+	public int elementAt(int i) { //dense ID of the i-th element (0 <= i < size())
+		return _storage.element(_storage.start(_index) + i);
+	}
+	
+	public boolean containsDense(int dense) { //binary search on the sorted dense IDs
+		return _storage.contains(_index, dense);
+	}
+	
+	public CSRStorage getStorage() { return _storage; }
+	public int getIndex() { return _index; }
+	
+	/**
+	 * Read-only view of the set in original element IDs, sorted like the old TreeSet.  Dense
+	 * order is not ID order, so the view sorts a copy of the IDs once when it is made; range views
+	 * (headSet, subSet, ...) share that array and only narrow the [_lo, _hi) window on it.
+	 */
+	
+	private static class ElementView extends AbstractSet <Integer> implements NavigableSet <Integer> {
+		
+		private final int[] _ids; //original IDs of the whole set, ascending
+		private final int _lo, _hi; //this view is _ids[_lo .. _hi-1]
+		
+		ElementView(ElementSet es) {
+			_ids = new int[es.size()];
+			for (int i = 0; i < _ids.length; i++) {
+				_ids[i] = es._storage.origID(es.elementAt(i));
+			}
+			Arrays.sort(_ids);
+			_lo = 0;
+			_hi = _ids.length;
+		}
+		
+		private ElementView(int[] ids, int lo, int hi) {
+			_ids = ids;
+			_lo = lo;
+			_hi = Math.max(lo, hi);
+		}
+		
+		private int bound(int id, boolean after) { //first position in the window holding an ID >= id (> id if after)
+			int pos = Arrays.binarySearch(_ids, _lo, _hi, id);
+			if (pos < 0) {
+				return -pos - 1;
+			}
+			return after ? pos + 1 : pos; //IDs are distinct
+		}
+		
+		private Integer at(int pos) { //null when pos is outside the window, like TreeSet's lower() etc.
+			return pos >= _lo && pos < _hi ? _ids[pos] : null;
+		}
+		
+		@Override
+		public int size() {
+			return _hi - _lo;
+		}
+		
+		@Override
+		public boolean contains(Object o) {
+			return o instanceof Integer && Arrays.binarySearch(_ids, _lo, _hi, (Integer)o) >= 0;
+		}
+		
+		@Override
+		public Iterator <Integer> iterator() {
+			return new Iterator <Integer>() {
+				private int _next = _lo;
+				
+				public boolean hasNext() { return _next < _hi; }
+				
+				public Integer next() {
+					if (_next >= _hi) {
+						throw new NoSuchElementException();
+					}
+					return _ids[_next++];
+				}
+			};
+		}
+		
+		public Iterator <Integer> descendingIterator() {
+			return new Iterator <Integer>() {
+				private int _next = _hi - 1;
+				
+				public boolean hasNext() { return _next >= _lo; }
+				
+				public Integer next() {
+					if (_next < _lo) {
+						throw new NoSuchElementException();
+					}
+					return _ids[_next--];
+				}
+			};
+		}
+		
+		public NavigableSet <Integer> descendingSet() { //rarely needed, so a reversed copy rather than a second kind of view
+			return Collections.unmodifiableNavigableSet(new TreeSet <Integer>(this)).descendingSet();
+		}
+		
+		public Comparator <? super Integer> comparator() { return null; } //natural order
+		
+		public Integer first() {
+			if (_lo == _hi) {
+				throw new NoSuchElementException();
+			}
+			return _ids[_lo];
+		}
+		
+		public Integer last() {
+			if (_lo == _hi) {
+				throw new NoSuchElementException();
+			}
+			return _ids[_hi - 1];
+		}
+		
+		public Integer lower(Integer id) { return at(bound(id, false) - 1); }
+		public Integer floor(Integer id) { return at(bound(id, true) - 1); }
+		public Integer ceiling(Integer id) { return at(bound(id, false)); }
+		public Integer higher(Integer id) { return at(bound(id, true)); }
+		
+		public Integer pollFirst() { throw new UnsupportedOperationException(); } //read-only
+		public Integer pollLast() { throw new UnsupportedOperationException(); }
+		
+		public NavigableSet <Integer> subSet(Integer from, boolean fromInclusive, Integer to, boolean toInclusive) {
+			if (from > to) {
+				throw new IllegalArgumentException("fromKey > toKey");
+			}
+			return new ElementView(_ids, bound(from, !fromInclusive), bound(to, toInclusive));
+		}
+		
+		public NavigableSet <Integer> headSet(Integer to, boolean inclusive) {
+			return new ElementView(_ids, _lo, bound(to, inclusive));
+		}
+		
+		public NavigableSet <Integer> tailSet(Integer from, boolean inclusive) {
+			return new ElementView(_ids, bound(from, !inclusive), _hi);
+		}
+		
+		public SortedSet <Integer> subSet(Integer from, Integer to) { return subSet(from, true, to, false); }
+		public SortedSet <Integer> headSet(Integer to) { return headSet(to, false); }
+		public SortedSet <Integer> tailSet(Integer from) { return tailSet(from, true); }
 	}
 }
@@ -0,0 +1,110 @@
+/**
+ * 
+ */
+package util;
+import java.util.Arrays;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * Open-addressing int -> int hash map (linear probing, no boxing).  Values must be
+ * non-negative; get() returns -1 for a missing key.  Used to renumber element and set IDs
+ * without a HashMap&lt;Integer, Integer&gt; node per entry.
+ *
+ */
+
+public class IntIntHashMap {
+	
+	private int[] _keys;
+	private int[] _values; //-1 marks an empty slot
+	private int _size;
+	private int _mask;
+	
+	public IntIntHashMap() {
+		this(16);
+	}
+	
+	public IntIntHashMap(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) * 2; //power of two, load factor <= 0.5
+		_keys = new int[capacity];
+		_values = new int[capacity];
+		Arrays.fill(_values, -1);
+		_mask = capacity - 1;
+	}
+	
+	public int size() { return _size; }
+	
+	public int get(int key) {
+		int i = slot(key);
+		while (_values[i] >= 0) {
+			if (_keys[i] == key) {
+				return _values[i];
+			}
+			i = (i + 1) & _mask;
+		}
+		return -1;
+	}
+	
+	public void put(int key, int value) {
+		int i = slot(key);
+		while (_values[i] >= 0) {
+			if (_keys[i] == key) {
+				_values[i] = value;
+				return;
+			}
+			i = (i + 1) & _mask;
+		}
+		
+		_keys[i] = key;
+		_values[i] = value;
+		if (++_size * 2 > _keys.length) {
+			grow();
+		}
+	}
+	
+	public boolean remove(int key) { //backward-shift deletion, so lookups never need tombstones
+		int i = slot(key);
+		while (_values[i] >= 0) {
+			if (_keys[i] == key) {
+				_values[i] = -1;
+				_size--;
+				int j = (i + 1) & _mask;
+				while (_values[j] >= 0) { //move later entries of the probe run into the hole when their home allows it
+					int home = slot(_keys[j]);
+					if (((j - home) & _mask) >= ((j - i) & _mask)) {
+						_keys[i] = _keys[j];
+						_values[i] = _values[j];
+						_values[j] = -1;
+						i = j;
+					}
+					j = (j + 1) & _mask;
+				}
+				return true;
+			}
+			i = (i + 1) & _mask;
+		}
+		return false;
+	}
+	
+	private int slot(int key) {
+		int h = key * 0x9E3779B9; //spread consecutive IDs over the table
+		return (h ^ (h >>> 16)) & _mask;
+	}
+	
+	private void grow() {
+		int[] keys = _keys;
+		int[] values = _values;
+		
+		_keys = new int[keys.length * 2];
+		_values = new int[keys.length * 2];
+		Arrays.fill(_values, -1);
+		_mask = _keys.length - 1;
+		_size = 0;
+		
+		for (int i = 0; i < keys.length; i++) {
+			if (values[i] >= 0) {
+				put(keys[i], values[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,75 @@
+/**
+ * 
+ */
+package util;
+import java.util.Arrays;
+
+/**
+ * @author neevi.shah@mail.utoronto.ca
+ *
+ * A growable binary min-heap of primitive ints (no boxing).  Used by the solvers' selection
+ * engines where the int is a set's position in ID order, so the smallest value is also the
+ * set the original scans would prefer on a tie.
+ *
+ */
+
+public class IntMinHeap {
+	
+	private int[] _heap;
+	private int _size;
+	
+	public IntMinHeap() {
+		this(8);
+	}
+	
+	public IntMinHeap(int capacity) {
+		_heap = new int[Math.max(1, capacity)];
+	}
+	
+	public int size() { return _size; }
+	public boolean isEmpty() { return _size == 0; }
+	public void clear() { _size = 0; }
+	
+	public int peek() { //smallest value; only valid when the heap is not empty
+		return _heap[0];
+	}
+	
+	public void add(int value) {
+		if (_size == _heap.length) {
+			_heap = Arrays.copyOf(_heap, _size * 2);
+		}
+		
+		int i = _size++;
+		while (i > 0) { //sift up
+			int parent = (i - 1) >>> 1;
+			if (_heap[parent] <= value) {
+				break;
+			}
+			_heap[i] = _heap[parent];
+			i = parent;
+		}
+		_heap[i] = value;
+	}
+	
+	public int poll() { //remove and return the smallest value; only valid when the heap is not empty
+		int min = _heap[0];
+		int last = _heap[--_size];
+		
+		int i = 0;
+		int half = _size >>> 1;
+		while (i < half) { //sift down
+			int child = 2 * i + 1;
+			if (child + 1 < _size && _heap[child + 1] < _heap[child]) {
+				child++;
+			}
+			if (last <= _heap[child]) {
+				break;
+			}
+			_heap[i] = _heap[child];
+			i = child;
+		}
+		_heap[i] = last;
+		
+		return min;
+	}
+}